@@ -1,13 +1,17 @@
 package td.analyzer;
 
+import td.analyzer.analysis.AnalysisCache;
+import td.analyzer.analysis.MethodIndex;
 import td.analyzer.analysis.ProjectAnalyzer;
+import td.analyzer.analysis.SourceIndex;
 import td.analyzer.config.AnalyzerConfig;
 import td.analyzer.model.MethodInfo;
+import td.analyzer.stats.AnalysisStats;
+import td.analyzer.watch.ProjectWatcher;
 import td.analyzer.yaml.YamlWriter;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Comparator;
 import java.util.List;
 
 public class Main {
@@ -22,22 +26,73 @@ public class Main {
 
         Path inputPath = Paths.get(cfg.input).toAbsolutePath().normalize();
 
-        ProjectAnalyzer analyzer = new ProjectAnalyzer();
-        List<MethodInfo> analyzed = analyzer.analyzeProject(inputPath, cfg.mode);
+        Path cachePath = null;
+        if (cfg.cache) {
+            cachePath = (cfg.cacheFile == null || cfg.cacheFile.isBlank())
+                    ? inputPath.resolve(AnalysisCache.DEFAULT_FILE_NAME)
+                    : Paths.get(cfg.cacheFile).toAbsolutePath().normalize();
+        }
+
+        Path yamlOut = Paths.get(cfg.output).toAbsolutePath().normalize();
+
+        // chemin absolu : il est recopié dans le YAML généré, que td-tool lit depuis un autre dossier
+        if (cfg.index) {
+            cfg.indexFile = ((cfg.indexFile == null || cfg.indexFile.isBlank())
+                    ? yamlOut.resolveSibling(MethodIndex.DEFAULT_FILE_NAME)
+                    : Paths.get(cfg.indexFile).toAbsolutePath().normalize()).toString();
+        }
 
-        if (analyzed == null || analyzed.isEmpty()) {
-            System.err.println("Aucune méthode analysable trouvée (src/main/java).");
+        if (cfg.watch) {
+            new ProjectWatcher(cfg, inputPath, yamlOut, cachePath).run();
             return;
         }
 
-        analyzed.sort(Comparator.comparingDouble(MethodInfo::totalScore).reversed());
+        AnalysisStats stats = new AnalysisStats();
+        ProjectAnalyzer analyzer = new ProjectAnalyzer(cfg.threads, cachePath, stats);
+        SourceIndex index = analyzer.index(inputPath);
+        // classement en flux : seules les cfg.top meilleures méthodes sont gardées en mémoire
+        List<MethodInfo> selected = analyzer.analyzeTop(index, cfg.mode, cfg.top);
 
-        int n = Math.min(cfg.top, analyzed.size());
-        List<MethodInfo> selected = analyzed.subList(0, n);
+        if (selected.isEmpty()) {
+            System.err.println("Aucune méthode analysable trouvée (src/main/java, modules compris).");
+            reportStats(cfg, stats, yamlOut);
+            return;
+        }
 
-        Path yamlOut = Paths.get(cfg.output).toAbsolutePath().normalize();
+        long t0 = System.nanoTime();
         YamlWriter.writeYaml(cfg, selected, yamlOut);
+        stats.add(AnalysisStats.Stage.YAML, System.nanoTime() - t0);
 
         System.out.println("Fichier généré: " + yamlOut);
+
+        if (cfg.index) {
+            t0 = System.nanoTime();
+            MethodIndex.write(Paths.get(cfg.indexFile), index);
+            stats.add(AnalysisStats.Stage.INDEX, System.nanoTime() - t0);
+            System.out.println("Index des méthodes: " + cfg.indexFile);
+        }
+        reportStats(cfg, stats, yamlOut);
+    }
+
+    /**
+     * Avec --stats : résumé sur la sortie standard et rapport JSON (défaut : à côté du YAML).
+     * Sans --stats, seuls les échecs de parsing sont signalés.
+     */
+    private static void reportStats(AnalyzerConfig cfg, AnalysisStats stats, Path yamlOut) throws Exception {
+        if (!cfg.stats) {
+            int failed = stats.failures().size();
+            if (failed > 0) {
+                System.err.println("Attention : " + failed + " fichier(s) non analysable(s) ignoré(s) (détails avec --stats).");
+            }
+            return;
+        }
+
+        Path json = (cfg.statsFile == null || cfg.statsFile.isBlank())
+                ? yamlOut.resolveSibling(AnalysisStats.DEFAULT_FILE_NAME)
+                : Paths.get(cfg.statsFile).toAbsolutePath().normalize();
+
+        stats.printSummary(System.out);
+        stats.writeJson(json);
+        System.out.println("Statistiques: " + json);
     }
 }
@@ -0,0 +1,266 @@
+package td.analyzer.analysis;
+
+import td.analyzer.model.CallSite;
+import td.analyzer.model.MethodMetrics;
+import td.analyzer.model.MethodSummary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistance binaire d'un SourceIndex (fichier .td-analyzer.cache à la racine du projet).
+ *
+ * Format : en-tête (magic, version), table de chaînes, puis les entrées des fichiers
+ * main et test. Les entiers sont encodés en varint et les chaînes (noms de classes,
+ * types, identifiants) référencées par leur index dans la table.
+ * Un cache illisible ou d'une autre version est simplement ignoré.
+ */
+public final class AnalysisCache {
+
+    public static final String DEFAULT_FILE_NAME = ".td-analyzer.cache";
+
+    private static final int MAGIC = 0x54444143; // "TDAC"
+    // à incrémenter dès que MetricsCollector, CallSiteExtractor ou le format changent
+    private static final int VERSION = 2;
+
+    private AnalysisCache() {}
+
+    /** Charge le cache dans un index vide ; retourne false si le cache est absent ou invalide. */
+    public static boolean load(Path cacheFile, SourceIndex index) {
+        if (!Files.isRegularFile(cacheFile)) return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+
+            int stringCount = readVarInt(in);
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                strings[i] = in.readUTF();
+            }
+
+            Map<Path, SourceIndex.FileEntry> main = readEntries(in, strings, index.projectRoot(), true);
+            Map<Path, SourceIndex.FileEntry> tests = readEntries(in, strings, index.projectRoot(), false);
+
+            index.mainFiles.clear();
+            index.mainFiles.putAll(main);
+            index.testFiles.clear();
+            index.testFiles.putAll(tests);
+            index.markClean();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    public static void save(Path cacheFile, SourceIndex index) throws IOException {
+        StringTable table = new StringTable();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            writeEntries(out, table, index.projectRoot(), index.mainFiles, true);
+            writeEntries(out, table, index.projectRoot(), index.testFiles, false);
+        }
+
+        Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeVarInt(out, table.strings.size());
+            for (String s : table.strings) {
+                out.writeUTF(s);
+            }
+            body.writeTo(out);
+        }
+        try {
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        index.markClean();
+    }
+
+    // --------------------- écriture ---------------------
+
+    private static void writeEntries(DataOutputStream out, StringTable table, Path root,
+                                     Map<Path, SourceIndex.FileEntry> entries, boolean main) throws IOException {
+        writeVarInt(out, entries.size());
+        for (Map.Entry<Path, SourceIndex.FileEntry> e : entries.entrySet()) {
+            SourceIndex.FileEntry fe = e.getValue();
+
+            writeString(out, table, root.relativize(e.getKey()).toString().replace('\\', '/'));
+            out.writeLong(fe.size());
+            out.writeLong(fe.lastModified());
+            writeVarInt(out, fe.hash().length);
+            out.write(fe.hash());
+
+            if (main) {
+                out.writeBoolean(fe.parsed());
+                writeVarInt(out, fe.methods().size());
+                for (MethodSummary ms : fe.methods()) {
+                    writeMethod(out, table, ms);
+                }
+            } else {
+                writeVarInt(out, fe.identifiers().size());
+                for (String id : fe.identifiers()) {
+                    writeString(out, table, id);
+                }
+            }
+        }
+    }
+
+    private static void writeMethod(DataOutputStream out, StringTable table, MethodSummary ms) throws IOException {
+        writeString(out, table, ms.packageName());
+        writeString(out, table, ms.className());
+        writeString(out, table, ms.methodName());
+        writeString(out, table, ms.paramTypes());
+        writeVarInt(out, ms.arity());
+        writeVarInt(out, ms.ordinal());
+        writeVarInt(out, ms.beginLine());
+        writeVarInt(out, ms.endLine());
+
+        MethodMetrics m = ms.metrics();
+        int[] counters = {
+                m.statements, m.ifs, m.switches, m.conditionals, m.loops, m.returns,
+                m.catches, m.trys, m.throwsCount, m.breaks, m.continues, m.calls
+        };
+        for (int c : counters) {
+            writeVarInt(out, c);
+        }
+
+        writeVarInt(out, ms.calls().size());
+        for (CallSite cs : ms.calls()) {
+            writeString(out, table, cs.name());
+            writeVarInt(out, cs.arity());
+            writeString(out, table, cs.qualifierType());
+        }
+    }
+
+    // --------------------- lecture ---------------------
+
+    private static Map<Path, SourceIndex.FileEntry> readEntries(DataInputStream in, String[] strings, Path root,
+                                                                boolean main) throws IOException {
+        int count = readVarInt(in);
+        Map<Path, SourceIndex.FileEntry> entries = new HashMap<>(count * 2);
+
+        for (int i = 0; i < count; i++) {
+            Path file = root.resolve(readString(in, strings)).normalize();
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            byte[] hash = new byte[readVarInt(in)];
+            in.readFully(hash);
+
+            boolean parsed = true;
+            List<MethodSummary> methods = List.of();
+            Set<String> identifiers = Set.of();
+
+            if (main) {
+                parsed = in.readBoolean();
+                int n = readVarInt(in);
+                List<MethodSummary> list = new ArrayList<>(n);
+                for (int k = 0; k < n; k++) {
+                    list.add(readMethod(in, strings, file));
+                }
+                methods = List.copyOf(list);
+            } else {
+                int n = readVarInt(in);
+                Set<String> set = new HashSet<>(n * 2);
+                for (int k = 0; k < n; k++) {
+                    set.add(readString(in, strings));
+                }
+                identifiers = set;
+            }
+
+            entries.put(file, new SourceIndex.FileEntry(size, lastModified, hash, parsed, methods, identifiers));
+        }
+        return entries;
+    }
+
+    private static MethodSummary readMethod(DataInputStream in, String[] strings, Path file) throws IOException {
+        String pkg = readString(in, strings);
+        String cls = readString(in, strings);
+        String name = readString(in, strings);
+        String params = readString(in, strings);
+        int arity = readVarInt(in);
+        int ordinal = readVarInt(in);
+        int beginLine = readVarInt(in);
+        int endLine = readVarInt(in);
+
+        MethodMetrics m = new MethodMetrics();
+        m.statements = readVarInt(in);
+        m.ifs = readVarInt(in);
+        m.switches = readVarInt(in);
+        m.conditionals = readVarInt(in);
+        m.loops = readVarInt(in);
+        m.returns = readVarInt(in);
+        m.catches = readVarInt(in);
+        m.trys = readVarInt(in);
+        m.throwsCount = readVarInt(in);
+        m.breaks = readVarInt(in);
+        m.continues = readVarInt(in);
+        m.calls = readVarInt(in);
+
+        int n = readVarInt(in);
+        List<CallSite> calls = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            String callName = readString(in, strings);
+            int callArity = readVarInt(in);
+            String qualifier = readString(in, strings);
+            calls.add(new CallSite(callName, callArity, qualifier));
+        }
+
+        return new MethodSummary(file, pkg, cls, name, params, arity, ordinal, beginLine, endLine, m, List.copyOf(calls));
+    }
+
+    // --------------------- primitives ---------------------
+
+    private static void writeString(DataOutputStream out, StringTable table, String s) throws IOException {
+        writeVarInt(out, table.indexOf(s));
+    }
+
+    private static String readString(DataInputStream in, String[] strings) throws IOException {
+        return strings[readVarInt(in)];
+    }
+
+    private static void writeVarInt(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("varint trop long");
+    }
+
+    private static final class StringTable {
+        final List<String> strings = new ArrayList<>();
+        final Map<String, Integer> ids = new HashMap<>();
+
+        int indexOf(String s) {
+            return ids.computeIfAbsent(s, k -> {
+                strings.add(k);
+                return strings.size() - 1;
+            });
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package td.analyzer.analysis;
+
+import td.analyzer.model.CallSite;
+import td.analyzer.model.MethodSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Graphe d'appels du projet, construit après le scan.
+ *
+ * Chaque méthode reçoit un index entier (son rang dans la liste des résumés).
+ * Les appels sont résolus par nom + arité, en s'aidant du type de la portée quand il
+ * est connu (voir CallSiteExtractor). Un appel ambigu ou
+ * vers une classe hors projet n'est pas résolu.
+ *
+ * Seul un appel sans portée (ou sur {@code this}) absent de sa classe est résolu par son
+ * seul nom, s'il est unique dans le projet : c'est une heuristique pour les méthodes
+ * héritées. Un appel dont la portée a un type inconnu ({@code foo().process(x)},
+ * {@code a.b.run()}) n'est jamais crédité, pour ne pas gonfler le fan-in d'une méthode
+ * homonyme.
+ *
+ * Fan-in et fan-out sont calculés en une seule passe linéaire sur les sites d'appel.
+ */
+public final class CallGraph {
+
+    private static final int NONE = -1;
+
+    private final int[] fanIn;
+    private final int[] fanOut;
+
+    private CallGraph(int[] fanIn, int[] fanOut) {
+        this.fanIn = fanIn;
+        this.fanOut = fanOut;
+    }
+
+    /** Nombre de sites d'appel du projet qui ciblent la méthode i (hors récursion). */
+    public int fanIn(int i) {
+        return fanIn[i];
+    }
+
+    /** Nombre de sites d'appel dans la méthode i, résolus ou non. */
+    public int fanOut(int i) {
+        return fanOut[i];
+    }
+
+    public int size() {
+        return fanIn.length;
+    }
+
+    public static CallGraph build(List<MethodSummary> methods) {
+        int n = methods.size();
+
+        String[] classFqn = new String[n];
+        String[] className = new String[n];
+        String[] methodName = new String[n];
+        int[] arity = new int[n];
+        List<List<CallSite>> calls = new ArrayList<>(n);
+
+        for (int i = 0; i < n; i++) {
+            MethodSummary ms = methods.get(i);
+            classFqn[i] = ms.classFqn();
+            className[i] = ms.className();
+            methodName[i] = ms.methodName();
+            arity[i] = ms.arity();
+            calls.add(ms.calls());
+        }
+
+        return build(classFqn, className, methodName, arity, calls);
+    }
+
+    static CallGraph build(String[] classFqn, String[] className, String[] methodName, int[] arity,
+                           List<List<CallSite>> calls) {
+        int n = classFqn.length;
+
+        KeyIndex byFqn = new KeyIndex(n);
+        KeyIndex bySimpleClass = new KeyIndex(n);
+        KeyIndex byName = new KeyIndex(n);
+
+        for (int i = 0; i < n; i++) {
+            String sig = methodName[i] + "/" + arity[i];
+            byFqn.add(classFqn[i] + "#" + sig, i);
+            bySimpleClass.add(className[i] + "#" + sig, i);
+            byName.add(sig, i);
+        }
+
+        int[] fanIn = new int[n];
+        int[] fanOut = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            List<CallSite> sites = calls.get(i);
+            fanOut[i] = sites.size();
+
+            for (CallSite cs : sites) {
+                String sig = cs.name() + "/" + cs.arity();
+                int target;
+
+                if (CallSite.SELF.equals(cs.qualifierType())) {
+                    target = byFqn.unique(classFqn[i] + "#" + sig);
+                    if (target == NONE) target = byName.unique(sig);
+                } else if (CallSite.UNKNOWN.equals(cs.qualifierType())) {
+                    continue;
+                } else {
+                    target = bySimpleClass.unique(cs.qualifierType() + "#" + sig);
+                }
+
+                if (target == NONE || target == i) continue;
+
+                fanIn[target]++;
+            }
+        }
+
+        return new CallGraph(fanIn, fanOut);
+    }
+
+    /**
+     * Clés de résolution internées : chaque clé distincte reçoit un entier, et les
+     * méthodes qui la partagent sont chaînées dans des tableaux primitifs.
+     */
+    private static final class KeyIndex {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private int[] head = new int[16];
+        private final int[] next;
+
+        KeyIndex(int n) {
+            next = new int[n];
+        }
+
+        void add(String key, int method) {
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = ids.size();
+                ids.put(key, id);
+                if (id == head.length) head = Arrays.copyOf(head, id * 2);
+                head[id] = NONE;
+            }
+            next[method] = head[id];
+            head[id] = method;
+        }
+
+        /** La méthode associée à la clé si elle est unique, sinon NONE. */
+        int unique(String key) {
+            Integer id = ids.get(key);
+            if (id == null) return NONE;
+            int first = head[id];
+            return (next[first] == NONE) ? first : NONE;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package td.analyzer.analysis;
+
+import td.analyzer.model.MethodSummary;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Index des méthodes partagé avec td-tool (option --index) : td-tool y trouve les méthodes
+ * coupables de chaque fichier et ne parse plus que les fichiers qu'il coupe.
+ *
+ * Format texte UTF-8, une entrée par ligne, champs séparés par des tabulations :
+ *
+ * <pre>
+ * td-index  1
+ * file  &lt;chemin relatif au projet&gt;  &lt;SHA-256 du contenu&gt;
+ * method  &lt;rang dans cu.findAll(MethodDeclaration.class)&gt;  &lt;ligne de début&gt;  &lt;ligne de fin&gt;  &lt;id&gt;
+ * </pre>
+ *
+ * Les lignes method suivent la ligne file de leur fichier. Seules les méthodes coupables sont
+ * listées (corps présent, ni native ni main, dans une classe), sans filtre business : td-tool
+ * applique lui-même son mode. Un fichier qui n'a pas pu être parsé n'est pas listé. td-tool
+ * compare le SHA-256 de chaque fichier avec celui de l'index et re-parse ceux qui diffèrent.
+ */
+public final class MethodIndex {
+
+    public static final String DEFAULT_FILE_NAME = "td-index.tsv";
+
+    // à incrémenter si le format change (td-tool ignore un index d'une autre version)
+    private static final String HEADER = "td-index\t1";
+
+    private MethodIndex() {}
+
+    /** Écrit l'index des fichiers main (écriture à côté puis renommage, comme le cache). */
+    public static void write(Path indexFile, SourceIndex index) throws IOException {
+        Path root = index.projectRoot();
+        HexFormat hex = HexFormat.of();
+
+        if (indexFile.getParent() != null) {
+            Files.createDirectories(indexFile.getParent());
+        }
+        Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.write('\n');
+
+            for (Map.Entry<Path, SourceIndex.FileEntry> e : index.mainFiles.entrySet()) {
+                SourceIndex.FileEntry fe = e.getValue();
+                if (!fe.parsed()) continue;
+
+                out.write("file\t" + root.relativize(e.getKey()).toString().replace('\\', '/')
+                        + '\t' + hex.formatHex(fe.hash()) + '\n');
+                for (MethodSummary ms : fe.methods()) {
+                    out.write("method\t" + ms.ordinal() + '\t' + ms.beginLine() + '\t' + ms.endLine()
+                            + '\t' + ms.id() + '\n');
+                }
+            }
+        }
+
+        try {
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
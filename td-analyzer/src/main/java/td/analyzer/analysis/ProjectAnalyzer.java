@@ -1,36 +1,125 @@
 package td.analyzer.analysis;
 
-import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.expr.ConditionalExpr;
-import com.github.javaparser.ast.expr.MethodCallExpr;
-import com.github.javaparser.ast.stmt.*;
-
 import td.analyzer.model.MethodInfo;
+import td.analyzer.model.MethodMetrics;
+import td.analyzer.model.MethodSummary;
 import td.analyzer.scan.ProjectScanner;
 import td.analyzer.score.ComplexityScorer;
+import td.analyzer.score.DependencyScorer;
+import td.analyzer.stats.AnalysisStats;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 public class ProjectAnalyzer {
 
+    private static final DependencyScorer CONNECTIVITY = new DependencyScorer();
+
+    private final int threads;
+    private final Path cacheFile;
+    private final AnalysisStats stats;
+
+    public ProjectAnalyzer() {
+        this(1, null);
+    }
+
+    /**
+     * @param threads   workers pour le scan (voir ProjectScanner)
+     * @param cacheFile cache d'analyse incrémental, ou null pour tout ré-analyser
+     */
+    public ProjectAnalyzer(int threads, Path cacheFile) {
+        this(threads, cacheFile, new AnalysisStats());
+    }
+
+    /**
+     * @param stats reçoit les durées par étape et les compteurs de l'analyse
+     */
+    public ProjectAnalyzer(int threads, Path cacheFile, AnalysisStats stats) {
+        this.threads = threads;
+        this.cacheFile = cacheFile;
+        this.stats = stats;
+    }
+
+    public AnalysisStats stats() {
+        return stats;
+    }
+
     public List<MethodInfo> analyzeProject(Path projectRoot, String mode) throws Exception {
-        ProjectScanner scanner = new ProjectScanner();
-        List<ProjectScanner.ScannedMethod> scanned = scanner.scan(projectRoot);
+        return analyze(index(projectRoot), mode);
+    }
+
+    /**
+     * Index à jour du projet : chargé depuis le cache s'il y en a un, puis rafraîchi
+     * (seuls les fichiers modifiés sont ré-analysés) et re-sauvegardé si nécessaire.
+     */
+    public SourceIndex index(Path projectRoot) throws Exception {
+        SourceIndex index = new SourceIndex(projectRoot);
+        if (cacheFile != null) {
+            long t0 = System.nanoTime();
+            AnalysisCache.load(cacheFile, index);
+            stats.add(AnalysisStats.Stage.CACHE, System.nanoTime() - t0);
+        }
+
+        index.refresh(new ProjectScanner(threads, stats));
+
+        if (cacheFile != null && index.isDirty()) {
+            long t0 = System.nanoTime();
+            AnalysisCache.save(cacheFile, index);
+            stats.add(AnalysisStats.Stage.CACHE, System.nanoTime() - t0);
+        }
+        return index;
+    }
+
+    /** Score toutes les méthodes de l'index ; fan-in et références de tests sont recalculés ici. */
+    public List<MethodInfo> analyze(SourceIndex index, String mode) {
+        List<MethodInfo> result = new ArrayList<>();
+        analyze(index, mode, result::add);
+        return result;
+    }
 
-        return scanned.stream()
-                .filter(sm -> keepMethod(sm.method(), mode))
-                .map(sm -> buildMethodInfo(sm, projectRoot))
-                .collect(Collectors.toList());
+    /**
+     * Comme analyze, mais ne garde que les {@code top} meilleures méthodes, de la meilleure à la
+     * moins bonne : seules K MethodInfo sont conservées (voir TopKRanker). La mémoire reste
+     * toutefois O(méthodes) : l'index garde le MethodSummary de chaque méthode du projet, dont
+     * le graphe d'appels a besoin pour calculer le fan-in.
+     */
+    public List<MethodInfo> analyzeTop(SourceIndex index, String mode, int top) {
+        TopKRanker<MethodInfo> ranker = new TopKRanker<>(top, MethodInfo::totalScore);
+        analyze(index, mode, ranker::offer);
+
+        long t0 = System.nanoTime();
+        List<MethodInfo> result = ranker.result();
+        stats.add(AnalysisStats.Stage.SORT, System.nanoTime() - t0);
+        return result;
     }
 
-    private static boolean keepMethod(MethodDeclaration md, String mode) {
-        String name = md.getNameAsString();
+    /** Chaque MethodInfo est transmise au puits dès qu'elle est scorée, dans l'ordre de l'index. */
+    private void analyze(SourceIndex index, String mode, Consumer<MethodInfo> sink) {
+        List<MethodSummary> methods = index.methods();
+
+        long t0 = System.nanoTime();
+        TestReferenceIndex testIndex = index.testReferences();
+        long t1 = System.nanoTime();
+        CallGraph callGraph = CallGraph.build(methods);
+        long t2 = System.nanoTime();
+
+        int scored = 0;
+        for (int i = 0; i < methods.size(); i++) {
+            MethodSummary ms = methods.get(i);
+            if (!keepMethod(ms.methodName(), mode)) continue;
+            sink.accept(buildMethodInfo(ms, callGraph.fanIn(i), testIndex));
+            scored++;
+        }
+
+        stats.add(AnalysisStats.Stage.TEST_SIGNAL, t1 - t0);
+        stats.add(AnalysisStats.Stage.CALL_GRAPH, t2 - t1);
+        stats.add(AnalysisStats.Stage.SCORING, System.nanoTime() - t2);
+        stats.methodsScored(scored);
+    }
 
+    private static boolean keepMethod(String name, String mode) {
         if ("business".equalsIgnoreCase(mode)) {
             if (name.startsWith("get") || name.startsWith("set") || name.startsWith("is")) {
                 return false;
@@ -39,60 +128,34 @@ public class ProjectAnalyzer {
         return true;
     }
 
-    private static MethodInfo buildMethodInfo(ProjectScanner.ScannedMethod sm, Path projectRoot) {
-        MethodDeclaration md = sm.method();
-
-        String classFqn = sm.packageName().isBlank()
-                ? sm.className()
-                : sm.packageName() + "." + sm.className();
-
-        String paramTypes = md.getParameters().stream()
-                .map(p -> p.getType().asString())
-                .collect(Collectors.joining(","));
-
-        String id = classFqn + "#" + md.getNameAsString() + "(" + paramTypes + ")";
-
+    private static MethodInfo buildMethodInfo(MethodSummary ms, int fanIn, TestReferenceIndex testIndex) {
         MethodInfo mi = new MethodInfo();
-        mi.setId(id);
-        mi.setClassName(classFqn);
-        mi.setMethodName(md.getNameAsString());
-        mi.setParamTypes(paramTypes);
-        mi.setFilePath(sm.file());
+        mi.setId(ms.id());
+        mi.setClassName(ms.classFqn());
+        mi.setMethodName(ms.methodName());
+        mi.setParamTypes(ms.paramTypes());
+        mi.setFilePath(ms.file());
 
-        fillMetrics(mi, md);
+        MethodMetrics metrics = ms.metrics();
+        fillMetrics(mi, metrics);
+        mi.setFanIn(fanIn);
 
         mi.setHeuristicsScore(heuristicsScore(mi));
-        mi.setComplexityScore(ComplexityScorer.score(md));
+        mi.setComplexityScore(ComplexityScorer.score(metrics));
         mi.setDependencyScore(dependencyScore(mi));
-        mi.setTestSignalScore(testSignalScore(mi, projectRoot));
+        mi.setTestSignalScore(testSignalScore(mi, testIndex));
 
         mi.setGlobalScore(globalScore(mi));
         return mi;
     }
 
-    private static void fillMetrics(MethodInfo mi, MethodDeclaration md) {
-        BlockStmt body = md.getBody().orElse(null);
-        if (body == null) return;
-
-        mi.setStatementCount(body.getStatements().size());
-
-        int branch = md.findAll(IfStmt.class).size()
-                + md.findAll(SwitchStmt.class).size()
-                + md.findAll(ConditionalExpr.class).size()
-                + md.findAll(TryStmt.class).size();
-        mi.setBranchCount(branch);
-
-        int loops = md.findAll(ForStmt.class).size()
-                + md.findAll(ForEachStmt.class).size()
-                + md.findAll(WhileStmt.class).size()
-                + md.findAll(DoStmt.class).size();
-        mi.setLoopCount(loops);
-
-        mi.setReturnCount(md.findAll(ReturnStmt.class).size());
-        mi.setCatchCount(md.findAll(CatchClause.class).size());
-
-        mi.setFanOut(md.findAll(MethodCallExpr.class).size());
-        mi.setFanIn(0);
+    private static void fillMetrics(MethodInfo mi, MethodMetrics m) {
+        mi.setStatementCount(m.statements);
+        mi.setBranchCount(m.branchesWithTry());
+        mi.setLoopCount(m.loops);
+        mi.setReturnCount(m.returns);
+        mi.setCatchCount(m.catches);
+        mi.setFanOut(m.calls);
     }
 
     private static double heuristicsScore(MethodInfo m) {
@@ -103,41 +166,18 @@ public class ProjectAnalyzer {
         return score;
     }
 
+    // Le fan-in vient du graphe d'appels : la courbe de DependencyScorer (fan-in + fan-out)
+    // favorise les méthodes modérément appelées, pénalise les isolées et les trop centrales.
     private static double dependencyScore(MethodInfo m) {
         double score = 0.0;
-        score += clamp01(m.getFanOut() / 20.0) * 80.0;
-        score += clamp01(m.getStatementCount() / 25.0) * 20.0;
+        score += clamp01(m.getFanOut() / 20.0) * 60.0;
+        score += clamp01(m.getStatementCount() / 25.0) * 15.0;
+        score += CONNECTIVITY.score(m) * 25.0;
         return score;
     }
 
-    private static double testSignalScore(MethodInfo m, Path projectRoot) {
-        Path testRoot = projectRoot.resolve("src/test/java");
-        if (!Files.exists(testRoot)) {
-            m.setTestRefs(0);
-            return 0.0;
-        }
-
-        String needle = m.getMethodName();
-        int hits = 0;
-
-        List<Path> tests;
-        try (var walk = Files.walk(testRoot)) {
-            tests = walk.filter(p -> p.toString().endsWith(".java")).collect(Collectors.toList());
-        } catch (IOException e) {
-            m.setTestRefs(0);
-            return 0.0;
-        }
-
-        for (Path t : tests) {
-            String txt;
-            try {
-                txt = Files.readString(t, StandardCharsets.UTF_8);
-            } catch (Exception ignored) {
-                continue;
-            }
-            if (txt.contains(needle)) hits++;
-        }
-
+    private static double testSignalScore(MethodInfo m, TestReferenceIndex testIndex) {
+        int hits = testIndex.fileCount(m.getMethodName());
         m.setTestRefs(hits);
 
         if (hits <= 0) return 0.0;
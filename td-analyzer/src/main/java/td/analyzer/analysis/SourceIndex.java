@@ -0,0 +1,277 @@
+package td.analyzer.analysis;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+
+import td.analyzer.model.MethodSummary;
+import td.analyzer.scan.MavenModules;
+import td.analyzer.scan.ProjectScanner;
+import td.analyzer.stats.AnalysisStats;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Index en mémoire des sources d'un projet : pour chaque fichier, son empreinte
+ * (taille, date, SHA-256) et ce qu'on en a extrait (résumés de méthodes pour
+ * src/main/java, identifiants appelés pour src/test/java), modules Maven compris.
+ *
+ * {@link #refresh} ne ré-analyse que les fichiers dont le contenu a changé ; les signaux
+ * inter-fichiers (fan-in, références de tests) sont ensuite recalculés à partir de l'index.
+ * L'index peut être persisté avec AnalysisCache.
+ */
+public final class SourceIndex {
+
+    /** Empreinte et données extraites d'un fichier source ; parsed est faux si le fichier n'a pas pu être parsé. */
+    record FileEntry(
+            long size,
+            long lastModified,
+            byte[] hash,
+            boolean parsed,
+            List<MethodSummary> methods,
+            Set<String> identifiers
+    ) {
+        boolean sameStamp(long size, long lastModified) {
+            return this.size == size && this.lastModified == lastModified;
+        }
+
+        FileEntry withStamp(long size, long lastModified) {
+            return new FileEntry(size, lastModified, hash, parsed, methods, identifiers);
+        }
+    }
+
+    private final Path projectRoot;
+
+    // triés par chemin : même ordre que ProjectScanner.sourceFiles
+    final Map<Path, FileEntry> mainFiles = new TreeMap<>();
+    final Map<Path, FileEntry> testFiles = new TreeMap<>();
+
+    private boolean dirty;
+    private int reparsedFiles;
+
+    public SourceIndex(Path projectRoot) {
+        this.projectRoot = projectRoot;
+    }
+
+    public Path projectRoot() {
+        return projectRoot;
+    }
+
+    /** Vrai si l'index a changé depuis le dernier chargement / la dernière sauvegarde. */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    void markClean() {
+        dirty = false;
+    }
+
+    /** Nombre de fichiers ré-analysés par le dernier refresh. */
+    public int reparsedFiles() {
+        return reparsedFiles;
+    }
+
+    /** Met l'index à jour ; durées et compteurs vont dans scanner.stats(). */
+    public void refresh(ProjectScanner scanner) throws Exception {
+        AnalysisStats stats = scanner.stats();
+        reparsedFiles = 0;
+
+        long t0 = System.nanoTime();
+        List<Path> main = ProjectScanner.mainSourceFiles(projectRoot);
+        dropMissing(mainFiles, main);
+        int reparsedMain = refreshMain(scanner, main);
+        stats.filesFromCache(mainFiles.size() - reparsedMain);
+
+        long t1 = System.nanoTime();
+        List<Path> tests = ProjectScanner.testSourceFiles(projectRoot);
+        dropMissing(testFiles, tests);
+        refreshTests(stats, tests);
+        long t2 = System.nanoTime();
+
+        stats.add(AnalysisStats.Stage.SCAN, t1 - t0);
+        stats.add(AnalysisStats.Stage.TEST_SIGNAL, t2 - t1);
+    }
+
+    /**
+     * Mise à jour ciblée (mode watch) : seuls les fichiers donnés sont examinés, sans
+     * parcourir le projet. Un fichier disparu est retiré de l'index ; un chemin hors des
+     * dossiers de sources (ou qui n'est pas un .java) est ignoré.
+     */
+    public void refresh(ProjectScanner scanner, Collection<Path> changedFiles) throws Exception {
+        AnalysisStats stats = scanner.stats();
+        reparsedFiles = 0;
+
+        List<Path> mainRoots = MavenModules.sourceRoots(projectRoot, "src/main/java");
+        List<Path> testRoots = MavenModules.sourceRoots(projectRoot, "src/test/java");
+        List<Path> main = new ArrayList<>();
+        List<Path> tests = new ArrayList<>();
+
+        for (Path p : changedFiles) {
+            if (!p.toString().endsWith(".java")) continue;
+
+            Map<Path, FileEntry> entries;
+            List<Path> target;
+            if (isUnder(p, mainRoots)) {
+                entries = mainFiles;
+                target = main;
+            } else if (isUnder(p, testRoots)) {
+                entries = testFiles;
+                target = tests;
+            } else {
+                continue;
+            }
+
+            if (Files.isRegularFile(p)) {
+                target.add(p);
+            } else if (entries.remove(p) != null) {
+                dirty = true;
+            }
+        }
+        main.sort(null);
+        tests.sort(null);
+
+        long t0 = System.nanoTime();
+        int reparsedMain = refreshMain(scanner, main);
+        stats.filesFromCache(mainFiles.size() - reparsedMain);
+
+        long t1 = System.nanoTime();
+        refreshTests(stats, tests);
+        long t2 = System.nanoTime();
+
+        stats.add(AnalysisStats.Stage.SCAN, t1 - t0);
+        stats.add(AnalysisStats.Stage.TEST_SIGNAL, t2 - t1);
+    }
+
+    private static boolean isUnder(Path p, List<Path> roots) {
+        for (Path root : roots) {
+            if (p.startsWith(root)) return true;
+        }
+        return false;
+    }
+
+    /** Résumés de toutes les méthodes, dans l'ordre des fichiers. */
+    public List<MethodSummary> methods() {
+        List<MethodSummary> all = new ArrayList<>();
+        for (FileEntry e : mainFiles.values()) {
+            all.addAll(e.methods());
+        }
+        return all;
+    }
+
+    public TestReferenceIndex testReferences() {
+        List<Set<String>> perFile = new ArrayList<>(testFiles.size());
+        for (FileEntry e : testFiles.values()) {
+            perFile.add(e.identifiers());
+        }
+        return TestReferenceIndex.of(perFile);
+    }
+
+    private int refreshMain(ProjectScanner scanner, List<Path> files) throws Exception {
+        Map<Path, Stamp> changed = new LinkedHashMap<>();
+        for (Path p : files) {
+            // un fichier qui n'a pas pu être parsé est re-parsé même inchangé : son échec
+            // est ainsi signalé à chaque analyse (le cache ne garde pas la cause)
+            FileEntry known = mainFiles.get(p);
+            Stamp st = (known != null && !known.parsed()) ? stamp(p) : stampIfChanged(mainFiles, p);
+            // le contenu sera relu par le scanner : inutile de le garder en mémoire
+            if (st != null) changed.put(p, new Stamp(st.size, st.lastModified, st.hash, null));
+        }
+
+        if (changed.isEmpty()) return 0;
+
+        // résumés calculés pendant le scan : aucun AST ne survit au fichier qui l'a produit
+        Map<Path, List<MethodSummary>> byFile = new LinkedHashMap<>();
+        for (Path p : changed.keySet()) byFile.put(p, new ArrayList<>());
+        for (MethodSummary ms : scanner.scanSummaries(new ArrayList<>(changed.keySet()))) {
+            byFile.get(ms.file()).add(ms);
+        }
+        Set<Path> failed = new HashSet<>();
+        for (AnalysisStats.Failure f : scanner.stats().failures()) failed.add(f.file());
+
+        for (Map.Entry<Path, Stamp> e : changed.entrySet()) {
+            Stamp st = e.getValue();
+            mainFiles.put(e.getKey(), new FileEntry(st.size, st.lastModified, st.hash, !failed.contains(e.getKey()),
+                    List.copyOf(byFile.get(e.getKey())), Set.of()));
+        }
+        reparsedFiles += changed.size();
+        dirty = true;
+        return changed.size();
+    }
+
+    private void refreshTests(AnalysisStats stats, List<Path> files) throws IOException {
+        JavaParser parser = null;
+
+        for (Path p : files) {
+            Stamp st = stampIfChanged(testFiles, p);
+            if (st == null) continue;
+            stats.testFileParsed(st.size);
+
+            if (parser == null) parser = new JavaParser(new ParserConfiguration());
+            String txt = new String(st.content, StandardCharsets.UTF_8);
+            Set<String> ids = new HashSet<>(TestReferenceIndex.identifiersOf(parser, txt));
+
+            testFiles.put(p, new FileEntry(st.size, st.lastModified, st.hash, true, List.of(), ids));
+            reparsedFiles++;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Retourne l'empreinte d'un fichier à ré-analyser, ou null s'il est inchangé.
+     * Taille et date identiques : le fichier n'est pas relu. Sinon on compare le SHA-256
+     * du contenu (un checkout qui ne change que la date ne force pas de ré-analyse).
+     */
+    private Stamp stampIfChanged(Map<Path, FileEntry> entries, Path p) throws IOException {
+        long size = Files.size(p);
+        long lastModified = Files.getLastModifiedTime(p).toMillis();
+
+        FileEntry known = entries.get(p);
+        if (known != null && known.sameStamp(size, lastModified)) return null;
+
+        Stamp st = stamp(p, size, lastModified);
+        if (known != null && Arrays.equals(known.hash(), st.hash)) {
+            entries.put(p, known.withStamp(size, lastModified));
+            dirty = true;
+            return null;
+        }
+        return st;
+    }
+
+    private static Stamp stamp(Path p) throws IOException {
+        return stamp(p, Files.size(p), Files.getLastModifiedTime(p).toMillis());
+    }
+
+    private static Stamp stamp(Path p, long size, long lastModified) throws IOException {
+        byte[] content = Files.readAllBytes(p);
+        return new Stamp(size, lastModified, sha256(content), content);
+    }
+
+    private void dropMissing(Map<Path, FileEntry> entries, List<Path> present) {
+        if (entries.keySet().retainAll(new HashSet<>(present))) {
+            dirty = true;
+        }
+    }
+
+    static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Stamp(long size, long lastModified, byte[] hash, byte[] content) {}
+}
@@ -0,0 +1,78 @@
+package td.analyzer.analysis;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.MethodReferenceExpr;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index des références depuis src/test/java, construit en une seule passe
+ * (les identifiants de chaque fichier sont conservés par SourceIndex).
+ *
+ * Pour chaque identifiant de méthode appelé dans les tests (MethodCallExpr ou
+ * référence de méthode), on retient le nombre de fichiers de test qui l'utilisent.
+ * Un fichier de test non analysable retombe sur un découpage lexical de ses identifiants.
+ */
+public class TestReferenceIndex {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+    private final Map<String, Integer> filesByIdentifier;
+
+    private TestReferenceIndex(Map<String, Integer> filesByIdentifier) {
+        this.filesByIdentifier = filesByIdentifier;
+    }
+
+    public static TestReferenceIndex empty() {
+        return new TestReferenceIndex(Map.of());
+    }
+
+    /** Construit l'index à partir des identifiants de chaque fichier de test. */
+    public static TestReferenceIndex of(Collection<Set<String>> identifiersPerFile) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Set<String> ids : identifiersPerFile) {
+            for (String id : ids) {
+                counts.merge(id, 1, Integer::sum);
+            }
+        }
+        return new TestReferenceIndex(counts);
+    }
+
+    /** Nombre de fichiers de test qui référencent ce nom de méthode. */
+    public int fileCount(String methodName) {
+        if (methodName == null) return 0;
+        return filesByIdentifier.getOrDefault(methodName, 0);
+    }
+
+    /** Noms de méthodes appelés dans un fichier de test (découpage lexical si non analysable). */
+    public static Set<String> identifiersOf(JavaParser parser, String source) {
+        Set<String> ids = new HashSet<>();
+
+        ParseResult<CompilationUnit> parsed = parser.parse(source);
+        if (parsed.isSuccessful() && parsed.getResult().isPresent()) {
+            CompilationUnit cu = parsed.getResult().get();
+            for (MethodCallExpr call : cu.findAll(MethodCallExpr.class)) {
+                ids.add(call.getNameAsString());
+            }
+            for (MethodReferenceExpr ref : cu.findAll(MethodReferenceExpr.class)) {
+                ids.add(ref.getIdentifier());
+            }
+            return ids;
+        }
+
+        Matcher m = IDENTIFIER.matcher(source);
+        while (m.find()) {
+            ids.add(m.group());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,64 @@
+package td.analyzer.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Garde les K meilleurs éléments d'un flux, sans trier ni conserver tout le flux.
+ *
+ * Tas borné dont la racine est le moins bon élément retenu : un élément qui ne bat pas
+ * la racine est écarté aussitôt (il peut être libéré par le GC). Coût O(n log K),
+ * mémoire O(K).
+ *
+ * À score égal, l'élément offert en premier est préféré : le résultat est identique à un
+ * tri stable par score décroissant suivi de subList(0, K).
+ */
+public final class TopKRanker<T> {
+
+    private record Entry<T>(T item, double score, long seq) {}
+
+    private final int k;
+    private final ToDoubleFunction<T> score;
+    private final PriorityQueue<Entry<T>> heap;
+    private long seq;
+
+    public TopKRanker(int k, ToDoubleFunction<T> score) {
+        this.k = Math.max(0, k);
+        this.score = score;
+        // racine = moins bon : score le plus faible, puis arrivée la plus tardive
+        this.heap = new PriorityQueue<>(Math.max(1, this.k), TopKRanker::compareWorstFirst);
+    }
+
+    public void offer(T item) {
+        Entry<T> e = new Entry<>(item, score.applyAsDouble(item), seq++);
+        if (heap.size() < k) {
+            heap.add(e);
+        } else if (k > 0 && compareWorstFirst(e, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(e);
+        }
+    }
+
+    /** Nombre d'éléments offerts depuis la création. */
+    public long offered() {
+        return seq;
+    }
+
+    /** Les éléments retenus, du meilleur au moins bon. */
+    public List<T> result() {
+        List<Entry<T>> entries = new ArrayList<>(heap);
+        entries.sort((a, b) -> compareWorstFirst(b, a));
+
+        List<T> out = new ArrayList<>(entries.size());
+        for (Entry<T> e : entries) out.add(e.item());
+        return out;
+    }
+
+    private static <T> int compareWorstFirst(Entry<T> a, Entry<T> b) {
+        int c = Double.compare(a.score(), b.score());
+        if (c != 0) return c;
+        return Long.compare(b.seq(), a.seq());
+    }
+}
@@ -17,6 +17,20 @@ public class AnalyzerConfig {
     public String output = "td-config.generated.yaml";
     public int top = 15;
     public String mode = "business";
+    // 1 = scan séquentiel, 0 = un worker par cœur
+    public int threads = 1;
+    // Cache incrémental (.td-analyzer.cache à la racine du projet si cacheFile est vide)
+    public boolean cache = false;
+    public String cacheFile;
+    // Statistiques : résumé console + rapport JSON (td-analyzer-stats.json à côté du YAML si statsFile est vide)
+    public boolean stats = false;
+    public String statsFile;
+    // Index des méthodes pour td-tool (td-index.tsv à côté du YAML si indexFile est vide)
+    public boolean index = false;
+    public String indexFile;
+    // Mode watch : ré-analyse à chaque modification des sources, après watchDebounceMs sans événement
+    public boolean watch = false;
+    public int watchDebounceMs = 30;
     public boolean showHelp = false;
 
     public static void printHelp() {
@@ -31,6 +45,12 @@ public class AnalyzerConfig {
         System.out.println("  --output <file>        Chemin du YAML généré");
         System.out.println("  --top <N>              Nombre de méthodes proposées (défaut 15)");
         System.out.println("  --mode <business|any>  Filtre des méthodes (défaut business)");
+        System.out.println("  --threads <N>          Workers pour le scan (1 = séquentiel, 0 = tous les cœurs)");
+        System.out.println("  --cache [file]         Cache incrémental (défaut <input>/.td-analyzer.cache)");
+        System.out.println("  --stats [file]         Durées par étape, compteurs et échecs de parsing (rapport JSON)");
+        System.out.println("  --index [file]         Index des méthodes pour td-tool (défaut td-index.tsv à côté du YAML)");
+        System.out.println("  --watch                Surveille les sources et régénère le YAML à chaque modification");
+        System.out.println("  --debounce <ms>        Mode watch : délai sans événement avant la mise à jour (défaut 30)");
         System.out.println("  --help                 Affiche l'aide");
     }
 
@@ -81,6 +101,24 @@ public class AnalyzerConfig {
         if (kv.containsKey("--output")) cfg.output = kv.get("--output");
         if (kv.containsKey("--top")) cfg.top = Integer.parseInt(kv.get("--top"));
         if (kv.containsKey("--mode")) cfg.mode = kv.get("--mode");
+        if (kv.containsKey("--threads")) cfg.threads = Integer.parseInt(kv.get("--threads"));
+        if (kv.containsKey("--cache")) {
+            cfg.cache = true;
+            String v = kv.get("--cache");
+            if (!"true".equals(v)) cfg.cacheFile = v;
+        }
+        if (kv.containsKey("--index")) {
+            cfg.index = true;
+            String v = kv.get("--index");
+            if (!"true".equals(v)) cfg.indexFile = v;
+        }
+        if (kv.containsKey("--watch")) cfg.watch = true;
+        if (kv.containsKey("--debounce")) cfg.watchDebounceMs = Integer.parseInt(kv.get("--debounce"));
+        if (kv.containsKey("--stats")) {
+            cfg.stats = true;
+            String v = kv.get("--stats");
+            if (!"true".equals(v)) cfg.statsFile = v;
+        }
 
         normalize(cfg);
 
@@ -99,9 +137,14 @@ public class AnalyzerConfig {
         if (cfg.output == null || cfg.output.isBlank()) cfg.output = "td-config.generated.yaml";
         if (cfg.mode == null || cfg.mode.isBlank()) cfg.mode = "business";
         if (cfg.top <= 0) cfg.top = 15;
+        if (cfg.threads < 0) cfg.threads = 1;
+        if (cfg.watchDebounceMs < 0) cfg.watchDebounceMs = 30;
 
         cfg.mode = cfg.mode.trim();
         if (cfg.input != null) cfg.input = cfg.input.trim();
         if (cfg.output != null) cfg.output = cfg.output.trim();
+        if (cfg.cacheFile != null) cfg.cacheFile = cfg.cacheFile.trim();
+        if (cfg.statsFile != null) cfg.statsFile = cfg.statsFile.trim();
+        if (cfg.indexFile != null) cfg.indexFile = cfg.indexFile.trim();
     }
 }
@@ -0,0 +1,16 @@
+package td.analyzer.model;
+
+/**
+ * Appel de méthode extrait du code source, sans résolution de symboles.
+ *
+ * @param name          nom de la méthode appelée
+ * @param arity         nombre d'arguments
+ * @param qualifierType nom simple du type de la cible ; {@link #SELF} pour un appel
+ *                      sans portée ou sur {@code this}, {@link #UNKNOWN} si le type
+ *                      de la portée n'a pas pu être déterminé
+ */
+public record CallSite(String name, int arity, String qualifierType) {
+
+    public static final String SELF = "this";
+    public static final String UNKNOWN = "";
+}
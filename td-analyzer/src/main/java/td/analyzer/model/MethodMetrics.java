@@ -0,0 +1,33 @@
+package td.analyzer.model;
+
+/**
+ * Compteurs structurels d'une méthode, remplis en un seul parcours de l'AST
+ * (voir MetricsCollector) et lus par les différents scorers.
+ */
+public final class MethodMetrics {
+
+    // instructions directes du corps de la méthode
+    public int statements;
+
+    public int ifs;
+    public int switches;
+    public int conditionals;
+    public int loops;
+    public int returns;
+    public int catches;
+    public int trys;
+    public int throwsCount;
+    public int breaks;
+    public int continues;
+    public int calls;
+
+    /** Branches au sens de fillMetrics : if, switch, ?: et try. */
+    public int branchesWithTry() {
+        return ifs + switches + conditionals + trys;
+    }
+
+    /** Branches au sens du score de complexité : if, switch et ?:. */
+    public int branches() {
+        return ifs + switches + conditionals;
+    }
+}
@@ -0,0 +1,34 @@
+package td.analyzer.model;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Résumé d'une méthode scannée, sans référence à l'AST : signature, position dans le
+ * fichier, métriques et sites d'appel. C'est ce qui est conservé dans le cache d'analyse.
+ *
+ * ordinal est le rang de la déclaration dans cu.findAll(MethodDeclaration.class) : td-tool
+ * s'en sert pour retrouver la méthode quand il charge l'index des méthodes (MethodIndex).
+ */
+public record MethodSummary(
+        Path file,
+        String packageName,
+        String className,
+        String methodName,
+        String paramTypes,
+        int arity,
+        int ordinal,
+        int beginLine,
+        int endLine,
+        MethodMetrics metrics,
+        List<CallSite> calls
+) {
+    public String classFqn() {
+        return packageName.isBlank() ? className : packageName + "." + className;
+    }
+
+    /** Identifiant au format de MethodInfo.getId : Classe#nom(types). */
+    public String id() {
+        return classFqn() + "#" + methodName + "(" + paramTypes + ")";
+    }
+}
@@ -0,0 +1,113 @@
+package td.analyzer.scan;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.type.Type;
+
+import td.analyzer.model.CallSite;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Extraction des sites d'appel d'une méthode, sans résolution de symboles.
+ * Le type de la portée est déduit des paramètres, variables locales, champs de la
+ * classe, appels statiques (Classe.methode()) et expressions new.
+ */
+public final class CallSiteExtractor {
+
+    private CallSiteExtractor() {}
+
+    /** Extrait les appels d'une méthode, avec le type de portée quand il est déductible. */
+    public static List<CallSite> extract(MethodDeclaration md) {
+        List<MethodCallExpr> exprs = md.findAll(MethodCallExpr.class);
+        if (exprs.isEmpty()) return List.of();
+
+        Map<String, String> varTypes = null;
+        List<CallSite> out = new ArrayList<>(exprs.size());
+
+        for (MethodCallExpr call : exprs) {
+            String qualifier;
+            Optional<Expression> scope = call.getScope();
+
+            if (scope.isEmpty() || scope.get().isThisExpr()) {
+                qualifier = CallSite.SELF;
+            } else {
+                if (varTypes == null) varTypes = variableTypes(md);
+                qualifier = qualifierOf(scope.get(), varTypes);
+            }
+
+            out.add(new CallSite(call.getNameAsString(), call.getArguments().size(), qualifier));
+        }
+        return out;
+    }
+
+    private static String qualifierOf(Expression scope, Map<String, String> varTypes) {
+        if (scope.isNameExpr()) {
+            String name = scope.asNameExpr().getNameAsString();
+            String type = varTypes.get(name);
+            if (type != null) return type;
+            // Pas une variable connue : probablement un appel statique Classe.methode()
+            return Character.isUpperCase(name.charAt(0)) ? name : CallSite.UNKNOWN;
+        }
+        if (scope.isFieldAccessExpr()) {
+            FieldAccessExpr fa = scope.asFieldAccessExpr();
+            if (fa.getScope().isThisExpr()) {
+                String type = varTypes.get(fa.getNameAsString());
+                return (type != null) ? type : CallSite.UNKNOWN;
+            }
+            return CallSite.UNKNOWN;
+        }
+        if (scope.isObjectCreationExpr()) {
+            return scope.asObjectCreationExpr().getType().getNameAsString();
+        }
+        if (scope.isEnclosedExpr()) {
+            return qualifierOf(scope.asEnclosedExpr().getInner(), varTypes);
+        }
+        return CallSite.UNKNOWN;
+    }
+
+    /** Types (nom simple) des champs de la classe, puis des paramètres et variables locales. */
+    private static Map<String, String> variableTypes(MethodDeclaration md) {
+        Map<String, String> types = new HashMap<>();
+
+        Optional<Node> owner = md.getParentNode();
+        if (owner.isPresent() && owner.get() instanceof TypeDeclaration<?> td) {
+            for (FieldDeclaration fd : td.getFields()) {
+                for (VariableDeclarator v : fd.getVariables()) {
+                    putType(types, v.getNameAsString(), v.getType(), v.getInitializer().orElse(null));
+                }
+            }
+        }
+
+        for (Parameter p : md.findAll(Parameter.class)) {
+            putType(types, p.getNameAsString(), p.getType(), null);
+        }
+        for (VariableDeclarator v : md.findAll(VariableDeclarator.class)) {
+            putType(types, v.getNameAsString(), v.getType(), v.getInitializer().orElse(null));
+        }
+        return types;
+    }
+
+    private static void putType(Map<String, String> types, String var, Type type, Expression init) {
+        if (type.isClassOrInterfaceType()) {
+            types.put(var, type.asClassOrInterfaceType().getNameAsString());
+        } else if (type.isVarType() && init instanceof ObjectCreationExpr oce) {
+            types.put(var, oce.getType().getNameAsString());
+        } else {
+            // type primitif, tableau ou inconnu : masque un éventuel champ homonyme
+            types.put(var, CallSite.UNKNOWN);
+        }
+    }
+}
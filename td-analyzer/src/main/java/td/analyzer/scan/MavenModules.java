@@ -0,0 +1,104 @@
+package td.analyzer.scan;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Modules d'un projet Maven multi-modules.
+ *
+ * Lit la liste {@code <modules>} du pom.xml racine, puis celle de chaque module
+ * (agrégateurs imbriqués). Le projet racine fait toujours partie du résultat : un projet
+ * mono-module donne simplement [racine]. Un module déclaré sans pom.xml est quand même
+ * scanné ; un pom illisible est signalé et traité comme sans modules.
+ */
+public final class MavenModules {
+
+    private MavenModules() {}
+
+    /** Dossiers du projet et de tous ses modules, racine en premier, dans l'ordre du reactor déclaré. */
+    public static List<Path> moduleRoots(Path projectRoot) {
+        Set<Path> seen = new LinkedHashSet<>();
+        collect(projectRoot.normalize(), seen);
+        return new ArrayList<>(seen);
+    }
+
+    /** Dossiers {@code sub} (ex. src/main/java) existants dans le projet et ses modules. */
+    public static List<Path> sourceRoots(Path projectRoot, String sub) {
+        List<Path> roots = new ArrayList<>();
+        for (Path module : moduleRoots(projectRoot)) {
+            Path dir = module.resolve(sub);
+            if (Files.isDirectory(dir)) roots.add(dir);
+        }
+        return roots;
+    }
+
+    private static void collect(Path dir, Set<Path> seen) {
+        if (!seen.add(dir)) return; // module déclaré deux fois, ou cycle
+
+        for (String module : declaredModules(dir.resolve("pom.xml"))) {
+            Path child = dir.resolve(module).normalize();
+            // <module> peut désigner directement un fichier pom
+            if (child.getFileName() != null && child.getFileName().toString().endsWith(".xml")) {
+                child = child.getParent();
+            }
+            if (child != null && Files.isDirectory(child)) collect(child, seen);
+        }
+    }
+
+    /** Contenu des {@code <module>} directement sous {@code <project><modules>}. */
+    static List<String> declaredModules(Path pom) {
+        List<String> modules = new ArrayList<>();
+        if (!Files.isRegularFile(pom)) return modules;
+
+        Document doc;
+        try {
+            doc = newBuilder().parse(pom.toFile());
+        } catch (Exception e) {
+            System.err.println("Attention : " + pom + " illisible (" + e.getMessage() + "), modules ignorés.");
+            return modules;
+        }
+
+        Element project = doc.getDocumentElement();
+        for (Element list : children(project, "modules")) {
+            for (Element m : children(list, "module")) {
+                String name = m.getTextContent().trim();
+                if (!name.isEmpty()) modules.add(name);
+            }
+        }
+        return modules;
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> out = new ArrayList<>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node n = nodes.item(i);
+            if (n instanceof Element e && name.equals(e.getLocalName() != null ? e.getLocalName() : e.getTagName())) {
+                out.add(e);
+            }
+        }
+        return out;
+    }
+
+    private static DocumentBuilder newBuilder() throws Exception {
+        DocumentBuilderFactory f = DocumentBuilderFactory.newInstance();
+        f.setNamespaceAware(true);
+        // un pom n'a besoin ni de DTD ni d'entités externes
+        f.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        f.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        f.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        return f.newDocumentBuilder();
+    }
+}
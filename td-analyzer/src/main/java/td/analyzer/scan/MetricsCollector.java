@@ -0,0 +1,114 @@
+package td.analyzer.scan;
+
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.ConditionalExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.stmt.*;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+
+import td.analyzer.model.MethodMetrics;
+
+/**
+ * Visiteur qui remplit un MethodMetrics en un seul parcours du sous-arbre d'une méthode,
+ * au lieu d'un findAll(...) par type de nœud. Les comptes sont identiques à ceux de
+ * findAll : les lambdas et classes anonymes du corps sont incluses.
+ */
+public final class MetricsCollector extends VoidVisitorAdapter<MethodMetrics> {
+
+    private static final MetricsCollector INSTANCE = new MetricsCollector();
+
+    private MetricsCollector() {}
+
+    public static MethodMetrics collect(MethodDeclaration md) {
+        MethodMetrics m = new MethodMetrics();
+        if (md == null || md.getBody().isEmpty()) return m;
+
+        m.statements = md.getBody().get().getStatements().size();
+        md.accept(INSTANCE, m);
+        return m;
+    }
+
+    @Override
+    public void visit(IfStmt n, MethodMetrics m) {
+        m.ifs++;
+        super.visit(n, m);
+    }
+
+    @Override
+    public void visit(SwitchStmt n, MethodMetrics m) {
+        m.switches++;
+        super.visit(n, m);
+    }
+
+    @Override
+    public void visit(ConditionalExpr n, MethodMetrics m) {
+        m.conditionals++;
+        super.visit(n, m);
+    }
+
+    @Override
+    public void visit(ForStmt n, MethodMetrics m) {
+        m.loops++;
+        super.visit(n, m);
+    }
+
+    @Override
+    public void visit(ForEachStmt n, MethodMetrics m) {
+        m.loops++;
+        super.visit(n, m);
+    }
+
+    @Override
+    public void visit(WhileStmt n, MethodMetrics m) {
+        m.loops++;
+        super.visit(n, m);
+    }
+
+    @Override
+    public void visit(DoStmt n, MethodMetrics m) {
+        m.loops++;
+        super.visit(n, m);
+    }
+
+    @Override
+    public void visit(ReturnStmt n, MethodMetrics m) {
+        m.returns++;
+        super.visit(n, m);
+    }
+
+    @Override
+    public void visit(CatchClause n, MethodMetrics m) {
+        m.catches++;
+        super.visit(n, m);
+    }
+
+    @Override
+    public void visit(TryStmt n, MethodMetrics m) {
+        m.trys++;
+        super.visit(n, m);
+    }
+
+    @Override
+    public void visit(ThrowStmt n, MethodMetrics m) {
+        m.throwsCount++;
+        super.visit(n, m);
+    }
+
+    @Override
+    public void visit(BreakStmt n, MethodMetrics m) {
+        m.breaks++;
+        super.visit(n, m);
+    }
+
+    @Override
+    public void visit(ContinueStmt n, MethodMetrics m) {
+        m.continues++;
+        super.visit(n, m);
+    }
+
+    @Override
+    public void visit(MethodCallExpr n, MethodMetrics m) {
+        m.calls++;
+        super.visit(n, m);
+    }
+}
@@ -1,15 +1,26 @@
 package td.analyzer.scan;
 
-import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 
+import td.analyzer.model.MethodSummary;
+import td.analyzer.stats.AnalysisStats;
+
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class ProjectScanner {
 
@@ -17,53 +28,230 @@ public class ProjectScanner {
             Path file,
             String packageName,
             String className,
+            int ordinal,
             MethodDeclaration method
-    ) {}
+    ) {
+        public String classFqn() {
+            return packageName.isBlank() ? className : packageName + "." + className;
+        }
+
+        public String paramTypes() {
+            return method.getParameters().stream()
+                    .map(p -> p.getType().asString())
+                    .collect(Collectors.joining(","));
+        }
+
+        /** Identifiant au format de MethodInfo.getId : Classe#nom(types). */
+        public String id() {
+            return classFqn() + "#" + method.getNameAsString() + "(" + paramTypes() + ")";
+        }
+
+        /** Résumé sans AST : métriques et sites d'appel calculés maintenant. */
+        public MethodSummary toSummary() {
+            return new MethodSummary(
+                    file,
+                    packageName,
+                    className,
+                    method.getNameAsString(),
+                    paramTypes(),
+                    method.getParameters().size(),
+                    ordinal,
+                    method.getBegin().map(pos -> pos.line).orElse(0),
+                    method.getEnd().map(pos -> pos.line).orElse(0),
+                    MetricsCollector.collect(method),
+                    CallSiteExtractor.extract(method)
+            );
+        }
+    }
+
+    /**
+     * Un JavaParser par thread : la configuration de StaticJavaParser est un état global
+     * partagé, et une instance de JavaParser n'est pas thread-safe.
+     */
+    private static final ThreadLocal<JavaParser> PARSER =
+            ThreadLocal.withInitial(() -> new JavaParser(new ParserConfiguration()));
+
+    private final int threads;
+    private final AnalysisStats stats;
+
+    public ProjectScanner() {
+        this(1);
+    }
+
+    /**
+     * @param threads nombre de workers (1 = séquentiel, 0 = un par cœur disponible)
+     */
+    public ProjectScanner(int threads) {
+        this(threads, new AnalysisStats());
+    }
+
+    /**
+     * @param stats reçoit le temps de parsing de chaque fichier et les échecs de parsing
+     */
+    public ProjectScanner(int threads, AnalysisStats stats) {
+        this.threads = (threads <= 0) ? Runtime.getRuntime().availableProcessors() : threads;
+        this.stats = stats;
+    }
+
+    public AnalysisStats stats() {
+        return stats;
+    }
 
+    /** Méthodes de src/main/java du projet et de tous ses modules Maven. */
     public List<ScannedMethod> scan(Path projectRoot) throws Exception {
-        Path srcRoot = projectRoot.resolve("src/main/java");
-        List<ScannedMethod> result = new ArrayList<>();
+        return scan(mainSourceFiles(projectRoot));
+    }
+
+    /** Comme scan(Path), mais retourne des résumés sans AST (voir scanSummaries(List)). */
+    public List<MethodSummary> scanSummaries(Path projectRoot) throws Exception {
+        return scanSummaries(mainSourceFiles(projectRoot));
+    }
+
+    /** Fichiers .java de src/main/java, dans le projet et ses modules (voir MavenModules). */
+    public static List<Path> mainSourceFiles(Path projectRoot) throws IOException {
+        return moduleSourceFiles(projectRoot, "src/main/java");
+    }
 
-        if (!Files.exists(srcRoot)) {
+    /** Fichiers .java de src/test/java, dans le projet et ses modules. */
+    public static List<Path> testSourceFiles(Path projectRoot) throws IOException {
+        return moduleSourceFiles(projectRoot, "src/test/java");
+    }
+
+    /**
+     * Tous les modules sont fusionnés en une seule liste triée : le scan parallèle répartit
+     * les fichiers de tous les modules entre les workers, et le graphe d'appels construit
+     * ensuite sur cette liste résout aussi les appels d'un module vers un autre.
+     */
+    private static List<Path> moduleSourceFiles(Path projectRoot, String sub) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path root : MavenModules.sourceRoots(projectRoot, sub)) {
+            files.addAll(sourceFiles(root));
+        }
+        files.sort(null);
+        return files;
+    }
+
+    /**
+     * Fichiers .java sous root, triés : le résultat est identique en mode séquentiel
+     * et parallèle, et d'une exécution à l'autre.
+     */
+    public static List<Path> sourceFiles(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return new ArrayList<>();
+        }
+        try (var walk = Files.walk(root)) {
+            return walk.filter(p -> p.toString().endsWith(".java"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Scanne les fichiers donnés ; les méthodes sont retournées dans l'ordre des fichiers.
+     * Chaque ScannedMethod garde son AST (et donc tout le CompilationUnit) en mémoire.
+     */
+    public List<ScannedMethod> scan(List<Path> files) throws Exception {
+        return scan(files, Function.identity());
+    }
+
+    /**
+     * Scanne les fichiers donnés et résume chaque méthode (signature, métriques, sites
+     * d'appel) pendant que son fichier est parsé. L'AST est abandonné dès que le fichier
+     * est résumé : la mémoire occupée par les AST est bornée par les fichiers en cours de
+     * traitement (un par worker), pas par la taille du projet.
+     */
+    public List<MethodSummary> scanSummaries(List<Path> files) throws Exception {
+        return scan(files, ScannedMethod::toSummary);
+    }
+
+    private <T> List<T> scan(List<Path> files, Function<ScannedMethod, T> extract) throws Exception {
+        List<T> result = new ArrayList<>();
+
+        if (threads <= 1 || files.size() <= 1) {
+            for (Path p : files) {
+                result.addAll(scanFile(p, extract));
+            }
             return result;
         }
 
-        try (var walk = Files.walk(srcRoot)) {
-            walk.filter(p -> p.toString().endsWith(".java"))
-                .forEach(p -> {
-                    CompilationUnit cu;
-                    try {
-                        cu = StaticJavaParser.parse(p);
-                    } catch (Exception e) {
-                        return;
-                    }
-
-                    String pkg = cu.getPackageDeclaration()
-                            .map(pd -> pd.getNameAsString())
-                            .orElse("");
-
-                    for (MethodDeclaration md : cu.findAll(MethodDeclaration.class)) {
-                        if (md.getBody().isEmpty()) continue;
-                        if (md.isNative()) continue;
-                        if (isMainMethod(md)) continue;
-
-                        Optional<ClassOrInterfaceDeclaration> parent =
-                                md.findAncestor(ClassOrInterfaceDeclaration.class);
-                        if (parent.isEmpty()) continue;
-
-                        result.add(new ScannedMethod(
-                                p,
-                                pkg,
-                                parent.get().getNameAsString(),
-                                md
-                        ));
-                    }
-                });
+        // Chaque tâche produit sa propre liste ; la fusion se fait dans l'ordre des fichiers,
+        // sans collection partagée entre les workers.
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+        try {
+            List<Future<List<T>>> parts = new ArrayList<>(files.size());
+            for (Path p : files) {
+                parts.add(pool.submit(() -> scanFile(p, extract)));
+            }
+            for (Future<List<T>> part : parts) {
+                result.addAll(part.get());
+            }
+        } finally {
+            pool.shutdownNow();
         }
 
         return result;
     }
 
+    /**
+     * Un fichier illisible ou non parsable est ignoré, mais compté dans les stats.
+     * extract est appliqué tant que l'AST du fichier est disponible (étape METRICS).
+     */
+    private <T> List<T> scanFile(Path p, Function<ScannedMethod, T> extract) {
+        long t0 = System.nanoTime();
+        long bytes = 0;
+        CompilationUnit cu;
+        try {
+            bytes = Files.size(p);
+            ParseResult<CompilationUnit> parsed = PARSER.get().parse(p);
+            if (!parsed.isSuccessful() || parsed.getResult().isEmpty()) {
+                String reason = parsed.getProblems().isEmpty()
+                        ? "aucun résultat"
+                        : parsed.getProblems().get(0).getMessage();
+                stats.failed(p, bytes, System.nanoTime() - t0, reason);
+                return List.of();
+            }
+            cu = parsed.getResult().get();
+        } catch (Exception e) {
+            stats.failed(p, bytes, System.nanoTime() - t0, String.valueOf(e));
+            return List.of();
+        }
+        long parseNanos = System.nanoTime() - t0;
+
+        String pkg = cu.getPackageDeclaration()
+                .map(pd -> pd.getNameAsString())
+                .orElse("");
+
+        List<ScannedMethod> methods = new ArrayList<>();
+        List<MethodDeclaration> declarations = cu.findAll(MethodDeclaration.class);
+        for (int ordinal = 0; ordinal < declarations.size(); ordinal++) {
+            MethodDeclaration md = declarations.get(ordinal);
+            if (md.getBody().isEmpty()) continue;
+            if (md.isNative()) continue;
+            if (isMainMethod(md)) continue;
+
+            Optional<ClassOrInterfaceDeclaration> parent =
+                    md.findAncestor(ClassOrInterfaceDeclaration.class);
+            if (parent.isEmpty()) continue;
+
+            methods.add(new ScannedMethod(
+                    p,
+                    pkg,
+                    parent.get().getNameAsString(),
+                    ordinal,
+                    md
+            ));
+        }
+        stats.parsed(p, bytes, parseNanos, methods.size());
+
+        long t1 = System.nanoTime();
+        List<T> out = new ArrayList<>(methods.size());
+        for (ScannedMethod sm : methods) {
+            out.add(extract.apply(sm));
+        }
+        stats.add(AnalysisStats.Stage.METRICS, System.nanoTime() - t1);
+        return out;
+    }
+
     private static boolean isMainMethod(MethodDeclaration md) {
         if (!md.getNameAsString().equals("main")) return false;
         if (!md.isStatic()) return false;
@@ -1,29 +1,28 @@
 package td.analyzer.score;
 
 import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.expr.ConditionalExpr;
-import com.github.javaparser.ast.stmt.*;
+
+import td.analyzer.model.MethodMetrics;
+import td.analyzer.scan.MetricsCollector;
 
 public class ComplexityScorer {
 
     public static double score(MethodDeclaration md) {
         if (md == null || md.getBody().isEmpty()) return 0.0;
+        return score(MetricsCollector.collect(md));
+    }
 
-        int branches = md.findAll(IfStmt.class).size()
-                + md.findAll(SwitchStmt.class).size()
-                + md.findAll(ConditionalExpr.class).size();
-
-        int loops = md.findAll(ForStmt.class).size()
-                + md.findAll(ForEachStmt.class).size()
-                + md.findAll(WhileStmt.class).size()
-                + md.findAll(DoStmt.class).size();
-
-        int returns = md.findAll(ReturnStmt.class).size();
-        int catches = md.findAll(CatchClause.class).size();
-        int trys = md.findAll(TryStmt.class).size();
-        int throwsStmts = md.findAll(ThrowStmt.class).size();
-        int breaks = md.findAll(BreakStmt.class).size();
-        int continues = md.findAll(ContinueStmt.class).size();
+    public static double score(MethodMetrics m) {
+        if (m == null) return 0.0;
+
+        int branches = m.branches();
+        int loops = m.loops;
+        int returns = m.returns;
+        int catches = m.catches;
+        int trys = m.trys;
+        int throwsStmts = m.throwsCount;
+        int breaks = m.breaks;
+        int continues = m.continues;
 
         double s = 0.0;
         s += clamp01(branches / 10.0) * 45.0;
@@ -0,0 +1,197 @@
+package td.analyzer.stats;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesures d'une analyse : durée de chaque étape et compteurs (fichiers, octets de source
+ * parsés, méthodes, échecs de parsing). Thread-safe : le scan parallèle alimente les mêmes compteurs.
+ *
+ * Les étapes PARSE et METRICS sont cumulées fichier par fichier (somme sur les workers) ;
+ * les autres sont des durées murales.
+ */
+public final class AnalysisStats {
+
+    public enum Stage { CACHE, SCAN, PARSE, METRICS, TEST_SIGNAL, CALL_GRAPH, SCORING, SORT, YAML, INDEX }
+
+    /** Fichier non analysable : il est ignoré, ses méthodes n'apparaissent pas dans le résultat. */
+    public record Failure(Path file, String reason) {}
+
+    /** Temps de parsing d'un fichier source. */
+    public record FileTiming(Path file, long bytes, long parseNanos, int methods) {}
+
+    public static final String DEFAULT_FILE_NAME = "td-analyzer-stats.json";
+
+    private static final int SLOW_FILES = 20;
+
+    private final LongAdder[] nanos = new LongAdder[Stage.values().length];
+    private final LongAdder filesParsed = new LongAdder();
+    private final LongAdder testFilesParsed = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder methodsFound = new LongAdder();
+    private final LongAdder methodsScored = new LongAdder();
+    private final ConcurrentLinkedQueue<Failure> failures = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<FileTiming> timings = new ConcurrentLinkedQueue<>();
+
+    private final long startNanos = System.nanoTime();
+    private volatile int filesFromCache;
+
+    public AnalysisStats() {
+        for (int i = 0; i < nanos.length; i++) nanos[i] = new LongAdder();
+    }
+
+    public void add(Stage stage, long elapsedNanos) {
+        nanos[stage.ordinal()].add(elapsedNanos);
+    }
+
+    public long nanos(Stage stage) {
+        return nanos[stage.ordinal()].sum();
+    }
+
+    /** Fichier de src/main/java parsé avec succès. */
+    public void parsed(Path file, long bytes, long parseNanos, int methods) {
+        filesParsed.increment();
+        bytesRead.add(bytes);
+        methodsFound.add(methods);
+        add(Stage.PARSE, parseNanos);
+        timings.add(new FileTiming(file, bytes, parseNanos, methods));
+    }
+
+    public void failed(Path file, long bytes, long parseNanos, String reason) {
+        bytesRead.add(bytes);
+        add(Stage.PARSE, parseNanos);
+        failures.add(new Failure(file, reason));
+        timings.add(new FileTiming(file, bytes, parseNanos, 0));
+    }
+
+    public void testFileParsed(long bytes) {
+        testFilesParsed.increment();
+        bytesRead.add(bytes);
+    }
+
+    public void filesFromCache(int n) {
+        filesFromCache = n;
+    }
+
+    public void methodsScored(int n) {
+        methodsScored.add(n);
+    }
+
+    public long filesParsed() {
+        return filesParsed.sum();
+    }
+
+    public List<Failure> failures() {
+        List<Failure> list = new ArrayList<>(failures);
+        list.sort(Comparator.comparing(Failure::file));
+        return list;
+    }
+
+    /** Fichiers les plus lents à parser, du plus lent au plus rapide. */
+    public List<FileTiming> slowestFiles(int n) {
+        List<FileTiming> list = new ArrayList<>(timings);
+        list.sort(Comparator.comparingLong(FileTiming::parseNanos).reversed());
+        return list.subList(0, Math.min(n, list.size()));
+    }
+
+    public void printSummary(PrintStream out) {
+        out.printf(Locale.ROOT, "Analyse en %.1f ms : %d fichier(s) parsé(s), %d depuis le cache, %d fichier(s) de test, "
+                        + "%d octet(s) lus, %d méthode(s) trouvée(s), %d scorée(s), %d échec(s) de parsing%n",
+                ms(System.nanoTime() - startNanos), filesParsed.sum(), filesFromCache, testFilesParsed.sum(),
+                bytesRead.sum(), methodsFound.sum(), methodsScored.sum(), failures.size());
+        for (Stage s : Stage.values()) {
+            out.printf(Locale.ROOT, "  %-12s %10.1f ms%n", s.name().toLowerCase(Locale.ROOT), ms(nanos(s)));
+        }
+        for (FileTiming t : slowestFiles(5)) {
+            out.printf(Locale.ROOT, "  lent : %s (%.1f ms, %d octets)%n", t.file(), ms(t.parseNanos()), t.bytes());
+        }
+        for (Failure f : failures()) {
+            out.println("  échec : " + f.file() + " (" + f.reason() + ")");
+        }
+    }
+
+    public void writeJson(Path file) throws IOException {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("{\n");
+        sb.append("  \"tool\": \"td-analyzer\",\n");
+        sb.append("  \"wallMillis\": ").append(fmt(ms(System.nanoTime() - startNanos))).append(",\n");
+        sb.append("  \"filesParsed\": ").append(filesParsed.sum()).append(",\n");
+        sb.append("  \"filesFromCache\": ").append(filesFromCache).append(",\n");
+        sb.append("  \"testFilesParsed\": ").append(testFilesParsed.sum()).append(",\n");
+        sb.append("  \"bytesRead\": ").append(bytesRead.sum()).append(",\n");
+        sb.append("  \"methodsFound\": ").append(methodsFound.sum()).append(",\n");
+        sb.append("  \"methodsScored\": ").append(methodsScored.sum()).append(",\n");
+        sb.append("  \"parseFailures\": ").append(failures.size()).append(",\n");
+
+        sb.append("  \"stages\": {\n");
+        Stage[] stages = Stage.values();
+        for (int i = 0; i < stages.length; i++) {
+            sb.append("    \"").append(stages[i].name().toLowerCase(Locale.ROOT).replace('_', '-')).append("\": ")
+                    .append(fmt(ms(nanos(stages[i]))))
+                    .append(i + 1 < stages.length ? ",\n" : "\n");
+        }
+        sb.append("  },\n");
+
+        sb.append("  \"slowestFiles\": [");
+        List<FileTiming> slow = slowestFiles(SLOW_FILES);
+        for (int i = 0; i < slow.size(); i++) {
+            FileTiming t = slow.get(i);
+            sb.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"file\": ").append(quote(t.file().toString()))
+                    .append(", \"parseMillis\": ").append(fmt(ms(t.parseNanos())))
+                    .append(", \"bytes\": ").append(t.bytes())
+                    .append(", \"methods\": ").append(t.methods()).append("}");
+        }
+        sb.append(slow.isEmpty() ? "],\n" : "\n  ],\n");
+
+        sb.append("  \"failures\": [");
+        List<Failure> failed = failures();
+        for (int i = 0; i < failed.size(); i++) {
+            Failure f = failed.get(i);
+            sb.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"file\": ").append(quote(f.file().toString()))
+                    .append(", \"reason\": ").append(quote(f.reason())).append("}");
+        }
+        sb.append(failed.isEmpty() ? "]\n" : "\n  ]\n");
+        sb.append("}\n");
+
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static String fmt(double v) {
+        return String.format(Locale.ROOT, "%.3f", v);
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,216 @@
+package td.analyzer.watch;
+
+import td.analyzer.analysis.AnalysisCache;
+import td.analyzer.analysis.MethodIndex;
+import td.analyzer.analysis.ProjectAnalyzer;
+import td.analyzer.analysis.SourceIndex;
+import td.analyzer.config.AnalyzerConfig;
+import td.analyzer.model.MethodInfo;
+import td.analyzer.scan.MavenModules;
+import td.analyzer.scan.ProjectScanner;
+import td.analyzer.stats.AnalysisStats;
+import td.analyzer.yaml.YamlWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Mode watch : analyse le projet une fois, puis surveille src/main/java et src/test/java
+ * (modules compris) et régénère le YAML à chaque modification.
+ *
+ * Le SourceIndex reste en mémoire : seuls les fichiers signalés par le WatchService sont
+ * relus et ré-analysés. Fan-in et références de tests dépendent de tout le projet ; les
+ * MethodInfo sont donc recalculées à partir des résumés de l'index, ce qui ne demande
+ * aucun parsing. Une rafale d'événements (sauvegarde de plusieurs fichiers, checkout)
+ * est regroupée : la mise à jour part quand aucun événement n'arrive pendant
+ * watchDebounceMs. Le YAML n'est réécrit que si son contenu change ; l'index des méthodes
+ * (--index) est réécrit à chaque mise à jour, et le cache d'analyse dès que l'index a
+ * changé : un redémarrage ne ré-analyse pas les fichiers modifiés pendant la surveillance.
+ *
+ * Une mise à jour qui échoue (dossier disparu pendant un changement de branche, YAML,
+ * index ou cache impossible à écrire) est signalée sans arrêter la surveillance ; la suivante
+ * re-parcourt alors tout le projet.
+ *
+ * Les dossiers de sources créés après le démarrage (nouveau module) ne sont pas
+ * surveillés : relancer le mode watch.
+ */
+public final class ProjectWatcher {
+
+    private static final DateTimeFormatter CLOCK = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final AnalyzerConfig cfg;
+    private final Path projectRoot;
+    private final Path yamlOut;
+    private final Path cacheFile;
+
+    private final Map<WatchKey, Path> dirs = new HashMap<>();
+    private WatchService watcher;
+    private SourceIndex index;
+
+    public ProjectWatcher(AnalyzerConfig cfg, Path projectRoot, Path yamlOut, Path cacheFile) {
+        this.cfg = cfg;
+        this.projectRoot = projectRoot;
+        this.yamlOut = yamlOut;
+        this.cacheFile = cacheFile;
+    }
+
+    /** Ne rend la main que si le thread est interrompu ou si plus aucun dossier n'est surveillé. */
+    public void run() throws Exception {
+        try (WatchService ws = FileSystems.getDefault().newWatchService()) {
+            watcher = ws;
+            for (Path root : MavenModules.sourceRoots(projectRoot, "src/main/java")) registerAll(root, null);
+            for (Path root : MavenModules.sourceRoots(projectRoot, "src/test/java")) registerAll(root, null);
+
+            long t0 = System.nanoTime();
+            AnalysisStats stats = new AnalysisStats();
+            ProjectAnalyzer analyzer = new ProjectAnalyzer(cfg.threads, cacheFile, stats);
+            index = analyzer.index(projectRoot);
+            publish(analyzer.analyzeTop(index, cfg.mode, cfg.top), stats,
+                    index.reparsedFiles() + " fichier(s) analysé(s)", t0);
+
+            System.out.println("Surveillance de " + dirs.size() + " dossier(s) sous " + projectRoot
+                    + " (Ctrl+C pour arrêter)");
+
+            boolean rescanPending = false;
+            while (!dirs.isEmpty()) {
+                WatchKey key;
+                try {
+                    key = watcher.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean rescan = rescanPending | drain(key, changed);
+
+                // anti-rebond : on attend que la rafale d'événements soit terminée
+                while ((key = watcher.poll(cfg.watchDebounceMs, TimeUnit.MILLISECONDS)) != null) {
+                    rescan |= drain(key, changed);
+                }
+
+                if (rescan || !changed.isEmpty()) {
+                    try {
+                        update(changed, rescan);
+                        rescanPending = false;
+                    } catch (Exception e) {
+                        System.err.println("Mise à jour impossible (projet re-parcouru au prochain changement) : " + e);
+                        rescanPending = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private void update(Set<Path> changed, boolean rescan) throws Exception {
+        long t0 = System.nanoTime();
+        AnalysisStats stats = new AnalysisStats();
+        ProjectScanner scanner = new ProjectScanner(cfg.threads, stats);
+
+        if (rescan) {
+            index.refresh(scanner);
+        } else {
+            index.refresh(scanner, changed);
+        }
+
+        if (cacheFile != null && index.isDirty()) {
+            long t1 = System.nanoTime();
+            AnalysisCache.save(cacheFile, index);
+            stats.add(AnalysisStats.Stage.CACHE, System.nanoTime() - t1);
+        }
+
+        List<MethodInfo> selected = new ProjectAnalyzer(cfg.threads, null, stats).analyzeTop(index, cfg.mode, cfg.top);
+        publish(selected, stats, index.reparsedFiles() + " fichier(s) ré-analysé(s)"
+                + (rescan ? " (dossiers modifiés : projet re-parcouru)" : ""), t0);
+    }
+
+    private void publish(List<MethodInfo> selected, AnalysisStats stats, String what, long t0) throws IOException {
+        boolean written = YamlWriter.writeYamlIfChanged(cfg, selected, yamlOut);
+        if (cfg.index) MethodIndex.write(Paths.get(cfg.indexFile), index);
+
+        System.out.printf(Locale.ROOT, "[%s] %s en %.0f ms, YAML %s%n",
+                LocalTime.now().format(CLOCK), what, (System.nanoTime() - t0) / 1e6,
+                written ? "réécrit : " + yamlOut : "inchangé");
+
+        for (AnalysisStats.Failure f : stats.failures()) {
+            System.err.println("  non analysable (méthodes ignorées jusqu'à correction) : "
+                    + f.file() + " : " + f.reason());
+        }
+        if (cfg.stats) stats.printSummary(System.out);
+    }
+
+    /**
+     * Ajoute au lot les fichiers touchés par les événements de la clé.
+     *
+     * @return vrai si le lot ne peut pas être décrit fichier par fichier (événements perdus,
+     *         dossier supprimé ou renommé) : il faut alors re-parcourir le projet
+     */
+    private boolean drain(WatchKey key, Set<Path> changed) {
+        Path dir = dirs.get(key);
+        boolean rescan = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || dir == null) {
+                rescan = true;
+                continue;
+            }
+
+            Path child = dir.resolve((Path) event.context());
+            if (child.toString().endsWith(".java")) {
+                changed.add(child);
+            } else if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+                // nouveau package : à surveiller, et ses fichiers (déjà copiés) à analyser
+                try {
+                    registerAll(child, changed);
+                } catch (IOException | UncheckedIOException e) {
+                    // supprimé entre l'événement et le parcours (changement de branche rapide)
+                    System.err.println("Dossier non surveillé : " + child + " (" + e + ")");
+                    rescan = true;
+                }
+            } else if (event.kind() == ENTRY_DELETE && dirs.containsValue(child)) {
+                // dossier supprimé ou renommé : on ne sait pas quels fichiers il contenait
+                rescan = true;
+            }
+        }
+
+        if (!key.reset()) dirs.remove(key);
+        return rescan;
+    }
+
+    /** Surveille dir et ses sous-dossiers ; si found n'est pas null, y ajoute les .java trouvés. */
+    private void registerAll(Path dir, Set<Path> found) throws IOException {
+        List<Path> tree;
+        try (var walk = Files.walk(dir)) {
+            tree = walk.collect(Collectors.toList());
+        }
+        for (Path p : tree) {
+            if (Files.isDirectory(p)) {
+                dirs.put(p.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), p);
+            } else if (found != null && p.toString().endsWith(".java")) {
+                found.add(p);
+            }
+        }
+    }
+}
@@ -6,8 +6,10 @@ import td.analyzer.config.AnalyzerConfig;
 import td.analyzer.model.MethodInfo;
 
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -18,10 +20,47 @@ public class YamlWriter {
     public static void writeYaml(AnalyzerConfig cfg, List<MethodInfo> selected, Path outFile)
             throws IOException {
 
+        String content = render(cfg, selected);
+
+        if (outFile.getParent() != null) {
+            Files.createDirectories(outFile.getParent());
+        }
+        Files.writeString(outFile, content);
+    }
+
+    /**
+     * Réécrit le YAML seulement si son contenu change (mode watch). Le nouveau fichier est
+     * écrit à côté puis renommé : un lecteur ne voit jamais un YAML à moitié écrit.
+     *
+     * @return vrai si le fichier a été réécrit
+     */
+    public static boolean writeYamlIfChanged(AnalyzerConfig cfg, List<MethodInfo> selected, Path outFile)
+            throws IOException {
+
+        String content = render(cfg, selected);
+        if (Files.isRegularFile(outFile) && content.equals(Files.readString(outFile))) {
+            return false;
+        }
+
+        if (outFile.getParent() != null) {
+            Files.createDirectories(outFile.getParent());
+        }
+        Path tmp = outFile.resolveSibling(outFile.getFileName() + ".tmp");
+        Files.writeString(tmp, content);
+        try {
+            Files.move(tmp, outFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, outFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return true;
+    }
+
+    public static String render(AnalyzerConfig cfg, List<MethodInfo> selected) {
         Map<String, Object> root = new LinkedHashMap<>();
         root.put("input", cfg.input);
         root.put("output", "OUTPUT_EXERCISE_PATH_HERE");
         root.put("mode", "any");
+        if (cfg.index) root.put("index", cfg.indexFile);
 
         List<Map<String, Object>> methods = new ArrayList<>();
 
@@ -31,6 +70,7 @@ public class YamlWriter {
             Map<String, Object> entry = new LinkedHashMap<>();
             entry.put("id", m.getPrettyId());
             entry.put("score", score);
+            entry.put("fanIn", m.getFanIn());
 
             if (score >= 30.0) {
                 entry.put("cut", "full");
@@ -54,12 +94,7 @@ public class YamlWriter {
         options.setWidth(120);
 
         Yaml yaml = new Yaml(options);
-        String content = yaml.dump(root);
-
-        if (outFile.getParent() != null) {
-            Files.createDirectories(outFile.getParent());
-        }
-        Files.writeString(outFile, content);
+        return yaml.dump(root);
     }
 
     private static int computeKeepStatements(double score) {
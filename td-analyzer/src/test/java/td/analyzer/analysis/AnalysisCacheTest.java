@@ -0,0 +1,37 @@
+package td.analyzer.analysis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import td.analyzer.stats.AnalysisStats;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisCacheTest {
+
+    @TempDir
+    Path project;
+
+    @Test
+    void brokenFileIsStillReportedWhenTheCacheIsReused() throws Exception {
+        Path pkg = Files.createDirectories(project.resolve("src/main/java/p"));
+        Files.writeString(project.resolve("pom.xml"), "<project/>\n");
+        Files.writeString(pkg.resolve("Ok.java"), "package p;\npublic class Ok { public int f() { return 1; } }\n");
+        Path broken = Files.writeString(pkg.resolve("Broken.java"), "package p;\npublic class Broken { public int f( { }\n");
+        Path cache = project.resolve(".td-analyzer.cache");
+
+        for (int run = 1; run <= 2; run++) {
+            AnalysisStats stats = new AnalysisStats();
+            new ProjectAnalyzer(1, cache, stats).analyzeProject(project, "any");
+
+            List<AnalysisStats.Failure> failures = stats.failures();
+            assertEquals(1, failures.size(), "run " + run);
+            assertEquals(broken, failures.get(0).file(), "run " + run);
+            assertTrue(Files.exists(cache));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package td.analyzer.analysis;
+
+import org.junit.jupiter.api.Test;
+import td.analyzer.model.CallSite;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CallGraphTest {
+
+    // 0 : Lib.process(x), 1 : Lib.helper(), 2 : Caller.run()
+    private static final String[] FQN = {"p.Lib", "p.Lib", "p.Caller"};
+    private static final String[] CLASS = {"Lib", "Lib", "Caller"};
+    private static final String[] NAME = {"process", "helper", "run"};
+    private static final int[] ARITY = {1, 0, 0};
+
+    @Test
+    void callOnAnUnknownScopeIsNotCreditedByName() {
+        // foo().process(x) : la portée n'a pas de type connu
+        CallGraph g = graph(List.of(new CallSite("process", 1, CallSite.UNKNOWN)));
+
+        assertEquals(0, g.fanIn(0));
+        assertEquals(1, g.fanOut(2));
+    }
+
+    @Test
+    void typedAndUnqualifiedCallsAreResolved() {
+        CallGraph g = graph(List.of(
+                new CallSite("process", 1, "Lib"),
+                // absent de Caller, unique dans le projet : méthode héritée
+                new CallSite("helper", 0, CallSite.SELF)));
+
+        assertEquals(1, g.fanIn(0));
+        assertEquals(1, g.fanIn(1));
+    }
+
+    private static CallGraph graph(List<CallSite> callerSites) {
+        return CallGraph.build(FQN, CLASS, NAME, ARITY, List.of(List.of(), List.of(), callerSites));
+    }
+}
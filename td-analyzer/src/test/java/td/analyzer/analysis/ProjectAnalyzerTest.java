@@ -0,0 +1,63 @@
+package td.analyzer.analysis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import td.analyzer.model.MethodInfo;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProjectAnalyzerTest {
+
+    @TempDir
+    Path project;
+
+    @Test
+    void methodWithManyCallersRanksAboveAnIdenticalUncalledOne() throws Exception {
+        Path pkg = Files.createDirectories(project.resolve("src/main/java/p"));
+        Files.writeString(project.resolve("pom.xml"), "<project/>\n");
+
+        // lone et hub ont le même corps ; seul hub est appelé (8 fois)
+        Files.writeString(pkg.resolve("Lib.java"), """
+                package p;
+
+                public class Lib {
+                    public int lone(int x) {
+                        int a = Math.max(x, 0);
+                        int b = Math.min(a, 10);
+                        return a + b;
+                    }
+
+                    public int hub(int x) {
+                        int a = Math.max(x, 0);
+                        int b = Math.min(a, 10);
+                        return a + b;
+                    }
+                }
+                """);
+        StringBuilder caller = new StringBuilder("package p;\n\npublic class Caller {\n"
+                + "    private final Lib lib = new Lib();\n");
+        for (int i = 0; i < 8; i++) {
+            caller.append("    public int c").append(i).append("() { return lib.hub(").append(i).append("); }\n");
+        }
+        Files.writeString(pkg.resolve("Caller.java"), caller.append("}\n").toString());
+
+        ProjectAnalyzer analyzer = new ProjectAnalyzer();
+        List<MethodInfo> ranked = analyzer.analyzeTop(analyzer.index(project), "any", 20);
+        MethodInfo hub = find(ranked, "hub");
+        MethodInfo lone = find(ranked, "lone");
+
+        assertEquals(8, hub.getFanIn());
+        assertEquals(0, lone.getFanIn());
+        assertTrue(hub.getDependencyScore() > lone.getDependencyScore());
+        assertTrue(ranked.indexOf(hub) < ranked.indexOf(lone), "hub must rank above lone");
+    }
+
+    private static MethodInfo find(List<MethodInfo> methods, String name) {
+        return methods.stream().filter(m -> m.getMethodName().equals(name)).findFirst().orElseThrow();
+    }
+}
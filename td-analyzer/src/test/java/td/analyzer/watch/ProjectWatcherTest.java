@@ -0,0 +1,78 @@
+package td.analyzer.watch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import td.analyzer.analysis.AnalysisCache;
+import td.analyzer.analysis.SourceIndex;
+import td.analyzer.config.AnalyzerConfig;
+import td.analyzer.scan.ProjectScanner;
+import td.analyzer.stats.AnalysisStats;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProjectWatcherTest {
+
+    @TempDir
+    Path project;
+
+    @Test
+    void cacheIsSavedAfterAnIncrementalUpdate() throws Exception {
+        Path pkg = Files.createDirectories(project.resolve("src/main/java/p"));
+        Files.writeString(project.resolve("pom.xml"), "<project/>\n");
+        Path ok = Files.writeString(pkg.resolve("Ok.java"), "package p;\npublic class Ok { public int f() { return 1; } }\n");
+        Path yaml = project.resolve("out.yaml");
+        Path cache = project.resolve(".td-analyzer.cache");
+
+        AnalyzerConfig cfg = new AnalyzerConfig();
+        cfg.mode = "any";
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread watch = new Thread(() -> {
+            try {
+                new ProjectWatcher(cfg, project, yaml, cache).run();
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        watch.start();
+        try {
+            assertTrue(waitFor(() -> Files.exists(yaml) && Files.exists(cache)), "analyse initiale");
+            byte[] initial = Files.readAllBytes(cache);
+
+            Files.writeString(ok, "package p;\npublic class Ok {\n"
+                    + "    public int f() { return 1; }\n"
+                    + "    public int g(int x) { return x + 1; }\n}\n");
+            assertTrue(waitFor(() -> !Arrays.equals(initial, Files.readAllBytes(cache))), "cache ré-écrit");
+        } finally {
+            watch.interrupt();
+            watch.join(10_000);
+        }
+        assertNull(failure.get());
+
+        // un redémarrage trouve un cache à jour : aucun fichier à ré-analyser
+        SourceIndex index = new SourceIndex(project);
+        assertTrue(AnalysisCache.load(cache, index));
+        index.refresh(new ProjectScanner(1, new AnalysisStats()));
+        assertEquals(0, index.reparsedFiles());
+        assertEquals(2, index.methods().size());
+    }
+
+    private interface Condition {
+        boolean holds() throws Exception;
+    }
+
+    private static boolean waitFor(Condition c) throws Exception {
+        long deadline = System.nanoTime() + 20_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            if (c.holds()) return true;
+            Thread.sleep(20);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+package ca.umontreal.tdtool;
+
+import org.openjdk.jmh.annotations.*;
+
+import td.bench.BenchFiles;
+import td.bench.SyntheticProject;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chemins chauds de td-tool sur un projet synthétique : analyse des sources
+ * (collectCandidateMethods) et écriture des fichiers coupés (applyCutsInFile).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class GeneratorBenchmark {
+
+    @Param({"100"})
+    public int files;
+
+    @Param({"10"})
+    public int methods;
+
+    @Param({"10"})
+    public int statements;
+
+    // une méthode candidate sur cutEvery est coupée
+    @Param({"5"})
+    public int cutEvery;
+
+    private Path root;
+    private Path srcRoot;
+    private Path out;
+    private Map<Main.ParsedSource, List<Main.ChosenCut>> cutsByFile;
+
+    @Setup
+    public void setup() throws Exception {
+        root = SyntheticProject.create("td-bench-generator", files, methods, statements);
+        srcRoot = root.resolve("src/main/java");
+        out = Files.createTempDirectory("td-bench-generator-out");
+
+        List<Main.MethodHandle> candidates = Main.collectCandidateMethods(srcRoot, "business", new LinkedHashMap<>());
+        cutsByFile = new LinkedHashMap<>();
+        for (int i = 0; i < candidates.size(); i += cutEvery) {
+            Main.MethodHandle mh = candidates.get(i);
+            Main.CutLevel level = (i % 2 == 0) ? Main.CutLevel.FULL : Main.CutLevel.PARTIAL;
+            cutsByFile.computeIfAbsent(mh.source, k -> new ArrayList<>()).add(new Main.ChosenCut(mh, level, 2));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        BenchFiles.deleteTree(root);
+        BenchFiles.deleteTree(out);
+    }
+
+    @Benchmark
+    public List<Main.MethodHandle> collectCandidateMethods() throws Exception {
+        return Main.collectCandidateMethods(srcRoot, "business", new LinkedHashMap<>());
+    }
+
+    @Benchmark
+    public void applyCutsInFile() throws Exception {
+        for (Map.Entry<Main.ParsedSource, List<Main.ChosenCut>> e : cutsByFile.entrySet()) {
+            Main.ParsedSource ps = e.getKey();
+            Main.applyCutsInFile(ps, e.getValue(), out.resolve(srcRoot.relativize(ps.file)), false);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ca.umontreal.tdtool;
+
+import org.openjdk.jmh.annotations.*;
+
+import td.bench.BenchFiles;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de l'énoncé étudiant (TXT + PDF) pour une variante.
+ *
+ * sharedFonts=false : polices et largeurs de glyphes rechargées pour chaque document.
+ * template=false : en-tête et pied de page remis en page pour chaque document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class HandoutBenchmark {
+
+    @Param({"5", "50"})
+    public int methods;
+
+    @Param({"true", "false"})
+    public boolean sharedFonts;
+
+    @Param({"true", "false"})
+    public boolean template;
+
+    private Path dir;
+    private Config cfg;
+    private List<StudentHandout.StubbedMethod> stubbed;
+    private List<String> lines;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("td-bench-handout");
+
+        cfg = new Config();
+        cfg.pdfSharedFonts = sharedFonts;
+        cfg.pdfTemplate = template;
+
+        stubbed = new ArrayList<>();
+        for (int i = 0; i < methods; i++) {
+            stubbed.add(new StudentHandout.StubbedMethod(
+                    "ca.umontreal.bench.pkg" + (i % 7) + ".Service" + i + "#process" + i + "(String,List<Order>,Map<String,Integer>)",
+                    (i % 3 == 0) ? "partial" : "full",
+                    (i % 3 == 0) ? 2 : null));
+        }
+
+        lines = new ArrayList<>();
+        lines.add("TRAVAIL DIRIGÉ (TD)");
+        for (StudentHandout.StubbedMethod m : stubbed) lines.add("- " + m.id + "  (coupure : " + m.cut + ")");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchFiles.deleteTree(dir);
+    }
+
+    @Benchmark
+    public void variant() throws IOException {
+        StudentHandout.generate(dir, cfg, stubbed);
+    }
+
+    /** Mise en page PDF seule (sans gabarit), toutes les lignes fournies. */
+    @Benchmark
+    public void writePdf() throws IOException {
+        StudentHandout.writePdf(dir.resolve("bench.pdf"), lines,
+                sharedFonts ? StudentHandout.sharedFonts() : new StudentHandout.PdfFonts());
+    }
+}
@@ -0,0 +1,70 @@
+package td.bench;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import td.analyzer.analysis.ProjectAnalyzer;
+import td.analyzer.model.MethodInfo;
+import td.analyzer.scan.ProjectScanner;
+import td.analyzer.score.ComplexityScorer;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Chemins chauds de td-analyzer sur un projet synthétique (files x methods x statements). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class AnalyzerBenchmark {
+
+    @Param({"100"})
+    public int files;
+
+    @Param({"10"})
+    public int methods;
+
+    @Param({"10"})
+    public int statements;
+
+    private Path root;
+    private List<MethodDeclaration> declarations;
+
+    @Setup
+    public void setup() throws Exception {
+        root = SyntheticProject.create("td-bench-analyzer", files, methods, statements);
+
+        declarations = new ArrayList<>();
+        for (Path p : ProjectScanner.sourceFiles(root.resolve("src/main/java"))) {
+            declarations.addAll(StaticJavaParser.parse(p).findAll(MethodDeclaration.class));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        BenchFiles.deleteTree(root);
+    }
+
+    @Benchmark
+    public List<ProjectScanner.ScannedMethod> scan() throws Exception {
+        return new ProjectScanner().scan(root);
+    }
+
+    @Benchmark
+    public List<MethodInfo> analyzeProject() throws Exception {
+        return new ProjectAnalyzer().analyzeProject(root, "business");
+    }
+
+    @Benchmark
+    public void complexityScore(Blackhole bh) {
+        for (MethodDeclaration md : declarations) {
+            bh.consume(ComplexityScorer.score(md));
+        }
+    }
+}
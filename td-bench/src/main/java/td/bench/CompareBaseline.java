@@ -0,0 +1,108 @@
+package td.bench;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compare deux résultats JMH (-rf json) et signale les régressions.
+ *
+ * Usage : CompareBaseline baseline.json courant.json [seuil%]
+ * Code de sortie 1 si un benchmark est plus lent que la référence de plus de seuil%
+ * (défaut 10%) et que les intervalles de confiance JMH (score ± scoreError, 99,9%) des deux
+ * mesures sont disjoints : un écart qui reste dans le bruit de mesure n'est pas une régression.
+ * Les benchmarks sont identifiés par leur nom et leurs paramètres.
+ */
+public final class CompareBaseline {
+
+    private CompareBaseline() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareBaseline <baseline.json> <current.json> [threshold%]");
+            System.exit(2);
+        }
+        double threshold = (args.length > 2) ? Double.parseDouble(args[2]) : 10.0;
+
+        Map<String, Score> baseline = load(Paths.get(args[0]));
+        Map<String, Score> current = load(Paths.get(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> e : current.entrySet()) {
+            Score cur = e.getValue();
+            Score ref = baseline.get(e.getKey());
+            if (ref == null) {
+                System.out.printf("  new   %-70s %10.3f +- %.3f%n", e.getKey(), cur.score, cur.error);
+                continue;
+            }
+            double delta = (cur.score - ref.score) / ref.score * 100.0;
+            boolean disjoint = cur.low() > ref.high();
+            boolean slower = delta > threshold && disjoint;
+            if (slower) regressions++;
+
+            String status = slower ? "  SLOW " : (delta > threshold) ? "  noise" : "  ok   ";
+            System.out.printf("%s %-70s %10.3f +- %-8.3f -> %10.3f +- %-8.3f (%+.1f%%)%n",
+                    status, e.getKey(), ref.score, ref.error, cur.score, cur.error, delta);
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " regression(s) above " + threshold + "% outside the confidence intervals");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Score JMH et demi-largeur de son intervalle de confiance. Une erreur inconnue (NaN, une
+     * seule itération mesurée) compte pour 0 : seul le seuil s'applique alors.
+     */
+    private record Score(double score, double error) {
+        double low() {
+            return score - error;
+        }
+
+        double high() {
+            return score + error;
+        }
+    }
+
+    /** Clé "benchmark{param=valeur,...}" -> score (unité du benchmark, plus bas = mieux). */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Score> load(Path json) throws Exception {
+        // JSON est un sous-ensemble de YAML : SnakeYAML suffit pour lire le rapport JMH
+        List<Map<String, Object>> runs;
+        try (Reader r = Files.newBufferedReader(json, StandardCharsets.UTF_8)) {
+            runs = new Yaml(new LoaderOptions()).load(r);
+        }
+
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (Map<String, Object> run : runs) {
+            String name = String.valueOf(run.get("benchmark"));
+            Object params = run.get("params");
+            if (params instanceof Map<?, ?> p && !p.isEmpty()) {
+                name += new TreeMap<>((Map<String, Object>) p).toString();
+            }
+            Map<String, Object> metric = (Map<String, Object>) run.get("primaryMetric");
+            scores.put(name, new Score(number(metric.get("score")), error(metric.get("scoreError"))));
+        }
+        return scores;
+    }
+
+    private static double number(Object o) {
+        // JMH écrit "NaN" entre guillemets quand la valeur n'est pas définie
+        return (o instanceof Number n) ? n.doubleValue() : Double.NaN;
+    }
+
+    private static double error(Object o) {
+        double e = number(o);
+        return Double.isFinite(e) ? Math.abs(e) : 0.0;
+    }
+}
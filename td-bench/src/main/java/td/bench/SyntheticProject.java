@@ -0,0 +1,30 @@
+package td.bench;
+
+import td.synth.ProjectGenerator;
+import td.synth.SynthConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Projet Maven synthétique pour les benchmarks (généré par td-synth) :
+ * files classes de methods méthodes métier d'environ statements instructions.
+ * Même paramètres = mêmes sources.
+ */
+public final class SyntheticProject {
+
+    private SyntheticProject() {}
+
+    public static Path create(String prefix, int files, int methods, int statements) throws IOException {
+        SynthConfig cfg = new SynthConfig();
+        cfg.classes = files;
+        cfg.packages = Math.max(1, files / 50);
+        cfg.methods = methods;
+        cfg.statements = statements;
+
+        Path root = Files.createTempDirectory(prefix);
+        ProjectGenerator.generate(cfg, root);
+        return root;
+    }
+}
@@ -0,0 +1,336 @@
+package td.synth;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Génère une classe "métier" et sa classe de test JUnit 5.
+ *
+ * Forme d'une classe : champs, accesseurs (get/set/is), equals/hashCode/toString,
+ * une méthode normalize(int) appelée par les autres classes, une classe interne Stats,
+ * puis cfg.methods méthodes métier de formes variées (boucles, branches, switch,
+ * try/catch, flux, appels au collaborateur), dont certaines surchargées.
+ *
+ * Toutes les méthodes sont déterministes et ne lèvent pas d'exception : les tests
+ * comparent le résultat de deux instances neuves et passent toujours.
+ */
+final class ClassGenerator {
+
+    record Generated(String main, String test, int methods, int mainLines, int testLines) {}
+
+    private enum Shape { ACCUMULATE, TEXT, PREDICATE, COLLECTION, STATEFUL, DELEGATE, STATS }
+
+    /** Méthode générée, et comment l'appeler depuis un test. */
+    private record Call(String name, String returnType, String args) {}
+
+    private static final String[] VERBS = {
+            "compute", "process", "resolve", "merge", "score", "count", "apply", "reconcile",
+            "allocate", "estimate", "rank", "dispatch", "summarize", "adjust", "plan"
+    };
+
+    private static final String[] OBJECTS = {
+            "Totals", "Items", "Entries", "Limits", "Fees", "Slots", "Weights", "Balance",
+            "Discount", "Priority", "Window", "Backlog", "Rates", "Delays"
+    };
+
+    private final SynthConfig cfg;
+    private final Random rng;
+    private int tmp;
+
+    ClassGenerator(SynthConfig cfg, Random rng) {
+        this.cfg = cfg;
+        this.rng = rng;
+    }
+
+    Generated generate(String pkg, String name, String collaboratorFqn) {
+        SourceWriter w = new SourceWriter();
+        List<Call> calls = new ArrayList<>();
+
+        w.line("package " + pkg + ";").blank();
+        w.line("import java.util.ArrayList;");
+        w.line("import java.util.HashMap;");
+        w.line("import java.util.List;");
+        w.line("import java.util.Map;");
+        w.line("import java.util.Objects;");
+        w.line("import java.util.stream.Collectors;").blank();
+
+        w.open("public class " + name);
+        w.blank();
+        w.line("private final Map<String, Integer> counts = new HashMap<>();");
+        w.line("private String label = \"" + name.toLowerCase() + "\";");
+        w.line("private int total;");
+        w.line("private boolean active = true;");
+        w.blank();
+
+        accessors(w);
+        statsClass(w);
+        normalize(w);
+
+        int methods = 5; // accesseurs + normalize
+        for (int m = 0; m < cfg.methods; m++) {
+            String methodName = VERBS[rng.nextInt(VERBS.length)] + OBJECTS[rng.nextInt(OBJECTS.length)] + m;
+            Shape shape = Shape.values()[rng.nextInt(Shape.values().length)];
+            calls.add(method(w, shape, methodName, collaboratorFqn));
+            methods++;
+
+            // surcharge : même nom, paramètres différents
+            if (shape == Shape.ACCUMULATE && rng.nextInt(3) == 0) {
+                w.open("public int " + methodName + "(int x)");
+                w.line("return " + methodName + "(x, List.of(x, x + 1, x + 2));");
+                w.close().blank();
+                calls.add(new Call(methodName, "int", "7"));
+                methods++;
+            }
+        }
+
+        objectMethods(w, name);
+        w.close();
+
+        String test = (cfg.tests) ? test(pkg, name, calls) : "";
+        int testLines = (cfg.tests) ? (int) test.lines().count() : 0;
+        return new Generated(w.toString(), test, methods, w.lineCount(), testLines);
+    }
+
+    // ------------------------------------------------------------------ forme de la classe
+
+    private void accessors(SourceWriter w) {
+        w.open("public String getLabel()").line("return label;").close().blank();
+        w.open("public void setLabel(String label)").line("this.label = label;").close().blank();
+        w.open("public int getTotal()").line("return total;").close().blank();
+        w.open("public boolean isActive()").line("return active;").close().blank();
+    }
+
+    private void statsClass(SourceWriter w) {
+        w.open("static final class Stats");
+        w.line("int min = Integer.MAX_VALUE;");
+        w.line("int max = Integer.MIN_VALUE;");
+        w.line("int count;").blank();
+        w.open("void accept(int v)");
+        w.line("min = Math.min(min, v);");
+        w.line("max = Math.max(max, v);");
+        w.line("count++;");
+        w.close().blank();
+        w.open("int range()");
+        w.line("return count == 0 ? 0 : max - min;");
+        w.close();
+        w.close().blank();
+    }
+
+    private void normalize(SourceWriter w) {
+        w.open("public int normalize(int v)");
+        w.open("if (v < 0)").line("return -v % 1000;").close();
+        w.line("return v % 1000;");
+        w.close().blank();
+    }
+
+    private void objectMethods(SourceWriter w, String name) {
+        w.line("@Override");
+        w.open("public boolean equals(Object o)");
+        w.line("if (this == o) return true;");
+        w.line("if (!(o instanceof " + name + ")) return false;");
+        w.line(name + " other = (" + name + ") o;");
+        w.line("return total == other.total && Objects.equals(label, other.label);");
+        w.close().blank();
+        w.line("@Override");
+        w.open("public int hashCode()").line("return Objects.hash(label, total);").close().blank();
+        w.line("@Override");
+        w.open("public String toString()").line("return \"" + name + "{label=\" + label + \", total=\" + total + \"}\";").close();
+    }
+
+    // ------------------------------------------------------------------ méthodes métier
+
+    private Call method(SourceWriter w, Shape shape, String name, String collaboratorFqn) {
+        switch (shape) {
+            case ACCUMULATE -> {
+                w.open("public int " + name + "(int x, List<Integer> values)");
+                w.line("int acc = x;");
+                fill(w, cfg.statements);
+                w.line("return acc;");
+                w.close().blank();
+                return new Call(name, "int", "3, List.of(4, -2, 9, 0)");
+            }
+            case TEXT -> {
+                w.open("public String " + name + "(String text)");
+                w.line("StringBuilder sb = new StringBuilder();");
+                w.line("int acc = text.length();");
+                w.line("List<Integer> values = new ArrayList<>();");
+                w.open("for (char c : text.toCharArray())");
+                w.open("if (Character.isDigit(c))");
+                w.line("values.add(c - '0');");
+                w.close(" else if (Character.isUpperCase(c)) {");
+                w.line("sb.append(Character.toLowerCase(c));");
+                w.close(" else {");
+                w.line("sb.append(c);");
+                w.close();
+                w.close();
+                fill(w, cfg.statements);
+                w.line("return sb.append('#').append(acc).toString();");
+                w.close().blank();
+                return new Call(name, "String", "\"Ab3-Cd7\"");
+            }
+            case PREDICATE -> {
+                w.open("public boolean " + name + "(int a, int b)");
+                w.line("List<Integer> values = List.of(a, b, a - b);");
+                w.line("int acc = a + b;");
+                w.open("if (a == b)").line("return false;").close();
+                fill(w, cfg.statements);
+                w.open("if (acc > a)").line("return true;").close();
+                w.line("return acc % 2 == 0 && active;");
+                w.close().blank();
+                return new Call(name, "boolean", "5, 8");
+            }
+            case COLLECTION -> {
+                w.open("public List<Integer> " + name + "(List<Integer> values)");
+                w.line("int acc = values.size();");
+                fill(w, cfg.statements);
+                w.line("final int pivot = acc;");
+                w.line("return values.stream()");
+                w.line("        .filter(v -> v != null && v > pivot % 5)");
+                w.line("        .map(v -> v * 2 + pivot % 3)");
+                w.line("        .sorted()");
+                w.line("        .collect(Collectors.toList());");
+                w.close().blank();
+                return new Call(name, "List<Integer>", "List.of(1, 6, 2, 8, 3)");
+            }
+            case STATEFUL -> {
+                w.open("public void " + name + "(String key, int amount)");
+                w.line("List<Integer> values = new ArrayList<>(counts.values());");
+                w.line("int acc = amount;");
+                fill(w, cfg.statements);
+                w.line("counts.merge(key, acc, Integer::sum);");
+                w.line("total += acc;");
+                w.open("if (total < 0)").line("active = false;").close();
+                w.close().blank();
+                return new Call(name, "void", "\"k\", 12");
+            }
+            case DELEGATE -> {
+                w.open("public int " + name + "(int x)");
+                w.line(collaboratorFqn + " other = new " + collaboratorFqn + "();");
+                w.line("List<Integer> values = List.of(x, x * 2);");
+                w.line("int acc = other.normalize(x);");
+                fill(w, cfg.statements);
+                w.line("return normalize(acc) + other.normalize(acc + 1);");
+                w.close().blank();
+                return new Call(name, "int", "42");
+            }
+            default -> {
+                w.open("public int " + name + "(List<Integer> values)");
+                w.line("Stats stats = new Stats();");
+                w.line("int acc = 0;");
+                w.open("for (Integer v : values)");
+                w.line("if (v == null) continue;");
+                w.line("stats.accept(v);");
+                w.close();
+                fill(w, cfg.statements);
+                w.line("return stats.range() + acc % 7;");
+                w.close().blank();
+                return new Call(name, "int", "List.of(3, 9, -4, 12)");
+            }
+        }
+    }
+
+    /** Corps : n instructions sur acc (int) et values (List<Integer>), sans exception ni retour. */
+    private void fill(SourceWriter w, int n) {
+        for (int i = 0; i < n; i++) {
+            int k = rng.nextInt(97) + 2;
+            int t = tmp++;
+            switch (rng.nextInt(9)) {
+                case 0 -> w.line("acc = acc * 31 + " + k + ";");
+                case 1 -> {
+                    w.open("if (acc % " + k + " == 0)");
+                    w.line("acc += " + k + ";");
+                    w.close(" else if (acc > " + (k * 100) + ") {");
+                    w.line("acc -= " + (k * 10) + ";");
+                    w.close(" else {");
+                    w.line("acc--;");
+                    w.close();
+                }
+                case 2 -> {
+                    w.open("for (Integer v" + t + " : values)");
+                    w.line("if (v" + t + " == null) continue;");
+                    w.line("if (v" + t + " > " + (k * 10) + ") break;");
+                    w.line("acc += v" + t + ";");
+                    w.close();
+                }
+                case 3 -> {
+                    w.open("switch (acc % 4)");
+                    w.line("case 0:");
+                    w.line("    acc += " + k + ";");
+                    w.line("    break;");
+                    w.line("case 1:");
+                    w.line("    acc -= " + (k / 2) + ";");
+                    w.line("    break;");
+                    w.line("default:");
+                    w.line("    acc ^= " + k + ";");
+                    w.close();
+                }
+                case 4 -> {
+                    w.open("try");
+                    w.line("acc = Math.addExact(acc, Integer.parseInt(String.valueOf(acc % " + k + ")));");
+                    w.close(" catch (NumberFormatException | ArithmeticException e) {");
+                    w.line("acc = " + k + ";");
+                    w.close();
+                }
+                case 5 -> {
+                    w.line("int n" + t + " = 0;");
+                    w.open("while (n" + t + " < " + (k % 5 + 1) + " && acc > 0)");
+                    w.line("acc /= 2;");
+                    w.line("n" + t + "++;");
+                    w.close();
+                }
+                case 6 -> w.line("acc = (acc > " + k + ") ? acc - " + k + " : acc + values.size();");
+                case 7 -> {
+                    w.open("for (int i" + t + " = 0; i" + t + " < values.size(); i" + t + "++)");
+                    w.open("for (int j" + t + " = i" + t + " + 1; j" + t + " < values.size(); j" + t + "++)");
+                    w.line("Integer a" + t + " = values.get(i" + t + "), b" + t + " = values.get(j" + t + ");");
+                    w.line("if (a" + t + " != null && b" + t + " != null && a" + t + " > b" + t + ") acc++;");
+                    w.close();
+                    w.close();
+                }
+                default -> w.line("counts.put(\"s" + k + "\", acc % " + k + ");");
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ tests
+
+    private String test(String pkg, String name, List<Call> calls) {
+        SourceWriter w = new SourceWriter();
+        w.line("package " + pkg + ";").blank();
+        w.line("import org.junit.jupiter.api.Test;").blank();
+        w.line("import java.util.List;").blank();
+        w.line("import static org.junit.jupiter.api.Assertions.*;").blank();
+
+        w.open("class " + name + "Test");
+        w.blank();
+        w.line("@Test");
+        w.open("void accessors()");
+        w.line(name + " s = new " + name + "();");
+        w.line("s.setLabel(\"x\");");
+        w.line("assertEquals(\"x\", s.getLabel());");
+        w.line("assertTrue(s.isActive());");
+        w.line("assertEquals(0, s.getTotal());");
+        w.close().blank();
+
+        for (int i = 0; i < calls.size(); i++) {
+            Call c = calls.get(i);
+            w.line("@Test");
+            w.open("void " + c.name() + "_" + i + "()");
+            if ("void".equals(c.returnType())) {
+                w.line(name + " a = new " + name + "();");
+                w.line(name + " b = new " + name + "();");
+                w.line("a." + c.name() + "(" + c.args() + ");");
+                w.line("b." + c.name() + "(" + c.args() + ");");
+                w.line("assertEquals(a, b);");
+            } else {
+                w.line(c.returnType() + " expected = new " + name + "()." + c.name() + "(" + c.args() + ");");
+                w.line("assertEquals(expected, new " + name + "()." + c.name() + "(" + c.args() + "));");
+            }
+            w.close().blank();
+        }
+
+        w.close();
+        return w.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package td.synth;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class Main {
+
+    public static void main(String[] args) throws Exception {
+        SynthConfig cfg = SynthConfig.fromArgs(args);
+
+        if (cfg.showHelp) {
+            SynthConfig.printHelp();
+            return;
+        }
+
+        Path out = Paths.get(cfg.output).toAbsolutePath().normalize();
+
+        long t0 = System.nanoTime();
+        ProjectGenerator.Result r = ProjectGenerator.generate(cfg, out);
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+
+        System.out.println("Projet généré: " + out);
+        System.out.println("  " + r.classes() + " classe(s), " + r.methods() + " méthode(s), "
+                + r.testClasses() + " classe(s) de test, " + r.lines() + " ligne(s) en " + ms + " ms");
+    }
+}
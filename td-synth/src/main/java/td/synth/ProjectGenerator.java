@@ -0,0 +1,179 @@
+package td.synth;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Écrit un projet Maven complet (pom.xml, src/main/java, src/test/java) de taille réglable.
+ *
+ * Les classes sont réparties dans cfg.packages packages. Chaque classe a un collaborateur
+ * (la classe suivante, éventuellement dans un autre package) qu'elle appelle, ce qui donne
+ * un graphe d'appels inter-classes. Le contenu ne dépend que de cfg : même graine,
+ * mêmes paramètres = mêmes sources.
+ */
+public final class ProjectGenerator {
+
+    public record Result(int classes, int methods, int testClasses, long lines) {}
+
+    static final String BASE_PACKAGE = "com.synth";
+
+    private static final String[] DOMAINS = {
+            "billing", "inventory", "shipping", "catalog", "accounts", "payroll", "booking",
+            "reporting", "pricing", "support", "identity", "scheduling", "warehouse", "orders",
+            "routing", "loyalty", "claims", "audit", "messaging", "tenancy"
+    };
+
+    private static final String[] NOUNS = {
+            "Order", "Invoice", "Account", "Route", "Ticket", "Batch", "Quota", "Shipment",
+            "Customer", "Ledger", "Coupon", "Schedule", "Parcel", "Contract", "Payment", "Session"
+    };
+
+    private static final String[] ROLES = {
+            "Service", "Manager", "Processor", "Handler", "Planner", "Validator", "Calculator", "Registry"
+    };
+
+    private ProjectGenerator() {}
+
+    // marque un répertoire généré : seul un tel répertoire (ou un répertoire vide) est écrasé
+    static final String MARKER = ".td-synth";
+
+    /** Génère le projet dans root. Un projet généré précédemment au même endroit est remplacé. */
+    public static Result generate(SynthConfig cfg, Path root) throws IOException {
+        SynthConfig.normalize(cfg);
+
+        if (Files.exists(root, LinkOption.NOFOLLOW_LINKS) && !Files.isDirectory(root, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IllegalArgumentException("Output path exists and is not a directory: " + root);
+        }
+        if (Files.isDirectory(root) && !Files.exists(root.resolve(MARKER)) && !isEmptyDirectory(root)) {
+            throw new IllegalArgumentException("Output directory is not empty and was not generated by td-synth: " + root);
+        }
+        deleteTree(root);
+        Path main = root.resolve("src/main/java");
+        Path test = root.resolve("src/test/java");
+        Files.createDirectories(main);
+        if (cfg.tests) Files.createDirectories(test);
+
+        Files.writeString(root.resolve("pom.xml"), pom(), StandardCharsets.UTF_8);
+        Files.writeString(root.resolve(MARKER), "seed=" + cfg.seed + "\n", StandardCharsets.UTF_8);
+
+        List<String> packages = new ArrayList<>();
+        for (int p = 0; p < cfg.packages; p++) {
+            String domain = DOMAINS[p % DOMAINS.length] + ((p < DOMAINS.length) ? "" : String.valueOf(p / DOMAINS.length + 1));
+            packages.add(BASE_PACKAGE + "." + domain);
+        }
+
+        // noms de toutes les classes d'abord : chaque classe référence la suivante
+        List<String> fqns = new ArrayList<>(cfg.classes);
+        for (int c = 0; c < cfg.classes; c++) {
+            String pkg = packages.get(c % packages.size());
+            String name = NOUNS[(c / packages.size()) % NOUNS.length] + ROLES[c % ROLES.length] + c;
+            fqns.add(pkg + "." + name);
+        }
+
+        int methods = 0;
+        long lines = 0;
+        for (int c = 0; c < cfg.classes; c++) {
+            String fqn = fqns.get(c);
+            String collaborator = fqns.get((c + 1) % fqns.size());
+
+            ClassGenerator gen = new ClassGenerator(cfg, new Random(cfg.seed * 31 + c));
+            ClassGenerator.Generated g = gen.generate(packageOf(fqn), simpleName(fqn), collaborator);
+
+            Path dir = main.resolve(packageOf(fqn).replace('.', '/'));
+            Files.createDirectories(dir);
+            Files.writeString(dir.resolve(simpleName(fqn) + ".java"), g.main(), StandardCharsets.UTF_8);
+            methods += g.methods();
+            lines += g.mainLines();
+
+            if (cfg.tests) {
+                Path testDir = test.resolve(packageOf(fqn).replace('.', '/'));
+                Files.createDirectories(testDir);
+                Files.writeString(testDir.resolve(simpleName(fqn) + "Test.java"), g.test(), StandardCharsets.UTF_8);
+                lines += g.testLines();
+            }
+        }
+
+        return new Result(cfg.classes, methods, cfg.tests ? cfg.classes : 0, lines);
+    }
+
+    private static String packageOf(String fqn) {
+        return fqn.substring(0, fqn.lastIndexOf('.'));
+    }
+
+    private static String simpleName(String fqn) {
+        return fqn.substring(fqn.lastIndexOf('.') + 1);
+    }
+
+    private static String pom() {
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <project xmlns="http://maven.apache.org/POM/4.0.0"
+                         xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+                         xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd">
+                    <modelVersion>4.0.0</modelVersion>
+
+                    <groupId>com.synth</groupId>
+                    <artifactId>synthetic-project</artifactId>
+                    <version>1.0.0</version>
+                    <packaging>jar</packaging>
+
+                    <properties>
+                        <maven.compiler.release>17</maven.compiler.release>
+                        <project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>
+                    </properties>
+
+                    <dependencies>
+                        <dependency>
+                            <groupId>org.junit.jupiter</groupId>
+                            <artifactId>junit-jupiter</artifactId>
+                            <version>5.10.2</version>
+                            <scope>test</scope>
+                        </dependency>
+                    </dependencies>
+
+                    <build>
+                        <plugins>
+                            <plugin>
+                                <groupId>org.apache.maven.plugins</groupId>
+                                <artifactId>maven-surefire-plugin</artifactId>
+                                <version>3.2.5</version>
+                            </plugin>
+                        </plugins>
+                    </build>
+                </project>
+                """;
+    }
+
+    private static boolean isEmptyDirectory(Path dir) throws IOException {
+        try (var entries = Files.list(dir)) {
+            return entries.findAny().isEmpty();
+        }
+    }
+
+    static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) throw exc;
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package td.synth;
+
+/** Petit tampon de code source Java indenté (4 espaces). */
+final class SourceWriter {
+
+    private final StringBuilder sb = new StringBuilder(8192);
+    private int indent;
+    private int lines;
+
+    SourceWriter line(String s) {
+        if (!s.isEmpty()) sb.append("    ".repeat(indent)).append(s);
+        sb.append('\n');
+        lines++;
+        return this;
+    }
+
+    SourceWriter blank() {
+        return line("");
+    }
+
+    /** Écrit "s {" et augmente l'indentation. */
+    SourceWriter open(String s) {
+        line(s + " {");
+        indent++;
+        return this;
+    }
+
+    /** Ferme le bloc courant avec "}" suivi de suffix (ex. " else {"). */
+    SourceWriter close(String suffix) {
+        indent--;
+        line("}" + suffix);
+        if (suffix.endsWith("{")) indent++;
+        return this;
+    }
+
+    SourceWriter close() {
+        return close("");
+    }
+
+    int lineCount() {
+        return lines;
+    }
+
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package td.synth;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class SynthConfig {
+
+    public String output;
+    // nombre total de classes de production (une classe de test par classe)
+    public int classes = 1000;
+    public int packages = 20;
+    // méthodes "métier" par classe (hors accesseurs, surcharges et classe interne)
+    public int methods = 10;
+    // instructions de premier niveau par méthode métier (approximatif)
+    public int statements = 12;
+    public boolean tests = true;
+    public long seed = 42L;
+    public boolean showHelp = false;
+
+    public static void printHelp() {
+        System.out.println("Usage:");
+        System.out.println("  java -jar td-synth.jar --output <dir> [options]");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  --output <dir>         Répertoire du projet Maven généré (écrasé)");
+        System.out.println("  --classes <N>          Nombre de classes (défaut 1000)");
+        System.out.println("  --packages <N>         Nombre de packages (défaut 20)");
+        System.out.println("  --methods <N>          Méthodes métier par classe (défaut 10)");
+        System.out.println("  --statements <N>       Instructions par méthode (défaut 12)");
+        System.out.println("  --no-tests             Ne pas générer les tests JUnit");
+        System.out.println("  --seed <long>          Graine (même graine = même projet, défaut 42)");
+        System.out.println("  --help                 Affiche l'aide");
+    }
+
+    public static SynthConfig fromArgs(String[] args) {
+        Map<String, String> kv = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+
+            if ("--help".equals(a) || "-h".equals(a)) {
+                SynthConfig c = new SynthConfig();
+                c.showHelp = true;
+                return c;
+            }
+
+            if (a.startsWith("--")) {
+                String val = (i + 1 < args.length && !args[i + 1].startsWith("--")) ? args[++i] : "true";
+                kv.put(a, val);
+            }
+        }
+
+        SynthConfig cfg = new SynthConfig();
+        if (kv.containsKey("--output")) cfg.output = kv.get("--output");
+        if (kv.containsKey("--classes")) cfg.classes = Integer.parseInt(kv.get("--classes"));
+        if (kv.containsKey("--packages")) cfg.packages = Integer.parseInt(kv.get("--packages"));
+        if (kv.containsKey("--methods")) cfg.methods = Integer.parseInt(kv.get("--methods"));
+        if (kv.containsKey("--statements")) cfg.statements = Integer.parseInt(kv.get("--statements"));
+        if (kv.containsKey("--no-tests")) cfg.tests = false;
+        if (kv.containsKey("--seed")) cfg.seed = Long.parseLong(kv.get("--seed"));
+
+        normalize(cfg);
+
+        if (cfg.output == null || cfg.output.isBlank()) {
+            cfg.showHelp = true;
+        }
+        return cfg;
+    }
+
+    static void normalize(SynthConfig cfg) {
+        if (cfg.classes <= 0) cfg.classes = 1;
+        if (cfg.packages <= 0) cfg.packages = 1;
+        if (cfg.packages > cfg.classes) cfg.packages = cfg.classes;
+        if (cfg.methods < 0) cfg.methods = 0;
+        if (cfg.statements < 0) cfg.statements = 0;
+        if (cfg.output != null) cfg.output = cfg.output.trim();
+    }
+}
@@ -0,0 +1,35 @@
+@echo off
+rem Lance td-tool depuis target\ avec l'archive AppCDS (target\td-tool.jsa) si le profil cds l'a construite.
+rem   set TD_CDS=off    : ne pas utiliser l'archive
+rem   set TD_CDS=train  : (re)créer l'archive à la fin de cette exécution
+rem   set JAVA_OPTS=... : options supplémentaires de la JVM
+setlocal
+set "DIR=%~dp0.."
+rem quelle que soit la version du pom ; s'il en reste plusieurs, le jar le plus récent
+set "JAR="
+for /f "delims=" %%F in ('dir /b /o:d "%DIR%\target\td-tool-*-jar-with-dependencies.jar" 2^>nul') do set "JAR=%DIR%\target\%%F"
+set "JSA=%DIR%\target\td-tool.jsa"
+
+set "JAVA=java"
+if defined JAVA_HOME set "JAVA=%JAVA_HOME%\bin\java"
+
+if not defined JAR (
+    echo td-tool : %DIR%\target\td-tool-*-jar-with-dependencies.jar introuvable ^(mvn -f %DIR%\pom.xml package^) 1>&2
+    exit /b 1
+)
+
+if /i "%TD_CDS%"=="off" goto plain
+if /i "%TD_CDS%"=="train" (
+    if exist "%JSA%" del "%JSA%"
+    "%JAVA%" -XX:ArchiveClassesAtExit="%JSA%" -Xlog:cds=error %JAVA_OPTS% -jar "%JAR%" %*
+    exit /b %ERRORLEVEL%
+)
+rem archive périmée (jar reconstruit) : la JVM l'ignore sans message grâce à -Xlog:cds=off
+if exist "%JSA%" (
+    "%JAVA%" -XX:SharedArchiveFile="%JSA%" -Xlog:cds=off -Xlog:cds+dynamic=off %JAVA_OPTS% -jar "%JAR%" %*
+    exit /b %ERRORLEVEL%
+)
+
+:plain
+"%JAVA%" %JAVA_OPTS% -jar "%JAR%" %*
+exit /b %ERRORLEVEL%
@@ -4,11 +4,14 @@ import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.Constructor;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 public class Config {
 
@@ -29,13 +32,69 @@ public class Config {
     // Mode MANUAL (si non vide)
     public List<MethodCut> methods = new ArrayList<>();
 
+    // Graine du tirage aléatoire (null = graine imprévisible).
+    // Même graine + mêmes sources = même sélection, y compris pour les N variantes du mode batch.
+    public Long seed;
+
+    // Empreinte SHA-256 des sources de référence, écrite dans le manifeste.
+    // Si présente, td-tool refuse de générer quand les sources ne correspondent plus.
+    public String inputHash;
+
+    // Index des méthodes écrit par td-analyzer (--index) : les fichiers dont l'empreinte n'a pas
+    // changé ne sont pas parsés pour lister les méthodes, seulement s'ils reçoivent une coupure
+    public String index;
+
     // Si true : ignore les méthodes demandées mais introuvables
     public Boolean ignoreMissingMethods = false;
 
+    // Mode BATCH : plusieurs variantes générées depuis une seule analyse du projet.
+    // Priorité : variantSets, puis variantSeeds, puis variants (N tirages aléatoires).
+    public Integer variants = 0;
+    public List<Long> variantSeeds = new ArrayList<>();
+    public List<VariantSet> variantSets = new ArrayList<>();
+    // Modules Maven scannés, fichiers coupés et variantes générées en parallèle (0 = un thread par cœur)
+    public Integer threads = 0;
+
+    // Instrumentation : résumé JSON par phase (temps réel, CPU, allocations) et/ou
+    // enregistrement JFR des phases (événements ca.umontreal.tdtool.Phase)
+    public String stats;
+    public String jfr;
+
+    // Matérialisation du projet exercice : "copy" (copie NIO parallèle) ou "link"
+    // (liens physiques vers le projet de référence, copie si non supporté)
+    public String materialize = "copy";
+
+    // Réécriture des fichiers coupés : "print" (CompilationUnit réimprimé par JavaParser) ou
+    // "splice" (seuls les corps coupés sont remplacés, le reste du fichier est conservé à l'octet près)
+    public String rewriteMode = "print";
+
+    // Filtres de copie (globs relatifs à la racine du projet de référence).
+    // Un répertoire exclu n'est jamais parcouru. copyInclude vide = tout inclure.
+    public List<String> copyInclude = new ArrayList<>();
+    public List<String> copyExclude = new ArrayList<>(DEFAULT_COPY_EXCLUDE);
+    // Répertoires de build (noms simples) exclus à la racine de chaque module seulement : racine
+    // du projet ou répertoire contenant un pom.xml. Un package Java nommé target reste copié.
+    public List<String> buildDirs = new ArrayList<>(DEFAULT_BUILD_DIRS);
+
+    public static final List<String> DEFAULT_BUILD_DIRS = List.of("target", "bin", "build", "out");
+
+    public static final List<String> DEFAULT_COPY_EXCLUDE = List.of(
+            ".git", ".svn", ".hg",
+            ".idea", ".gradle", "node_modules",
+            ".td-analyzer.cache"
+    );
+
     // Options de génération de l'énoncé étudiant
     public String studentHandoutBaseName = "ENONCE_TD";
     public Boolean generateStudentPdf = true;
     public Boolean generateStudentTxt = true;
+    // Polices PDF (et cache des largeurs de glyphes) réutilisées entre énoncés d'un même thread
+    public Boolean pdfSharedFonts = true;
+    // En-tête et pied de page du PDF calculés une fois (gabarit), seules les méthodes sont mises en page
+    public Boolean pdfTemplate = true;
+
+    // Manifeste td-manifest.yaml (graine, empreinte des sources, coupures retenues)
+    public Boolean generateManifest = true;
 
     // Sous-structure YAML : définition d'une coupure
     public static class MethodCut {
@@ -46,6 +105,9 @@ public class Config {
         // Permet d'avoir score: ... dans le YAML généré par td-analyzer
         public Double score;
 
+        // OPTIONNEL : informatif (nombre d'appelants dans le projet, écrit par td-analyzer)
+        public Integer fanIn;
+
         // "full" ou "partial"
         public String cut = "full";
 
@@ -55,6 +117,42 @@ public class Config {
         public MethodCut() {}
     }
 
+    // Sous-structure YAML : une variante du mode batch avec sa propre liste de coupures
+    public static class VariantSet {
+
+        // nom du sous-répertoire (défaut: variant-NNN)
+        public String name;
+
+        public List<MethodCut> methods = new ArrayList<>();
+
+        public VariantSet() {}
+    }
+
+    /**
+     * Résout les chemins relatifs (input, output, excludeFile, index, stats, jfr) par rapport à dir.
+     * Le mode daemon s'en sert : le répertoire courant est celui du client, pas du daemon.
+     */
+    public void resolvePaths(Path dir) {
+        input = resolve(dir, input);
+        output = resolve(dir, output);
+        excludeFile = resolve(dir, excludeFile);
+        index = resolve(dir, index);
+        stats = resolve(dir, stats);
+        jfr = resolve(dir, jfr);
+    }
+
+    private static String resolve(Path dir, String path) {
+        if (path == null || path.isBlank()) return path;
+        return dir.resolve(path).normalize().toString();
+    }
+
+    /** Vrai si la configuration demande plusieurs variantes. */
+    public boolean isBatch() {
+        return (variants != null && variants > 0)
+                || (variantSeeds != null && !variantSeeds.isEmpty())
+                || (variantSets != null && !variantSets.isEmpty());
+    }
+
     // Chargement YAML
     public static Config load(Path path) throws Exception {
         if (path == null) {
@@ -64,54 +162,96 @@ public class Config {
             throw new IllegalArgumentException("Config file not found: " + path.toAbsolutePath());
         }
 
+        try (InputStream in = Files.newInputStream(path)) {
+            return parse(in);
+        }
+    }
+
+    // Même format qu'un fichier de configuration (utilisé pour les requêtes du mode daemon)
+    public static Config parse(String yaml) {
+        return parse(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Config parse(InputStream in) {
         LoaderOptions opts = new LoaderOptions();
         Yaml yaml = new Yaml(new Constructor(Config.class, opts));
 
-        try (InputStream in = Files.newInputStream(path)) {
-            Config cfg = yaml.load(in);
-            if (cfg == null) cfg = new Config();
+        Config cfg = yaml.load(in);
+        if (cfg == null) cfg = new Config();
 
-            if (cfg.mode == null || cfg.mode.isBlank()) cfg.mode = "business";
-            cfg.mode = cfg.mode.trim();
+        if (cfg.mode == null || cfg.mode.isBlank()) cfg.mode = "business";
+        cfg.mode = cfg.mode.trim();
 
-            if (cfg.random == null) cfg.random = 1;
+        if (cfg.random == null) cfg.random = 1;
 
-            if (cfg.exclude == null) cfg.exclude = new ArrayList<>();
-            if (cfg.methods == null) cfg.methods = new ArrayList<>();
+        if (cfg.exclude == null) cfg.exclude = new ArrayList<>();
+        if (cfg.methods == null) cfg.methods = new ArrayList<>();
 
-            if (cfg.ignoreMissingMethods == null) cfg.ignoreMissingMethods = false;
+        if (cfg.ignoreMissingMethods == null) cfg.ignoreMissingMethods = false;
 
-            if (cfg.studentHandoutBaseName == null || cfg.studentHandoutBaseName.isBlank()) {
-                cfg.studentHandoutBaseName = "ENONCE_TD";
-            } else {
-                cfg.studentHandoutBaseName = cfg.studentHandoutBaseName.trim();
-            }
+        if (cfg.studentHandoutBaseName == null || cfg.studentHandoutBaseName.isBlank()) {
+            cfg.studentHandoutBaseName = "ENONCE_TD";
+        } else {
+            cfg.studentHandoutBaseName = cfg.studentHandoutBaseName.trim();
+        }
 
-            if (cfg.generateStudentPdf == null) cfg.generateStudentPdf = true;
-            if (cfg.generateStudentTxt == null) cfg.generateStudentTxt = true;
+        if (cfg.variants == null || cfg.variants < 0) cfg.variants = 0;
+        if (cfg.threads == null || cfg.threads < 0) cfg.threads = 0;
+        if (cfg.variantSeeds == null) cfg.variantSeeds = new ArrayList<>();
+        cfg.variantSeeds.removeIf(Objects::isNull);
+        if (cfg.variantSets == null) cfg.variantSets = new ArrayList<>();
+        cfg.variantSets.removeIf(Objects::isNull);
+        for (VariantSet vs : cfg.variantSets) {
+            if (vs.methods == null) vs.methods = new ArrayList<>();
+            normalizeCuts(vs.methods);
+        }
 
-            if (cfg.input != null) cfg.input = cfg.input.trim();
-            if (cfg.output != null) cfg.output = cfg.output.trim();
-            if (cfg.excludeFile != null) cfg.excludeFile = cfg.excludeFile.trim();
+        if (cfg.materialize == null || cfg.materialize.isBlank()) cfg.materialize = "copy";
+        cfg.materialize = cfg.materialize.trim().toLowerCase();
+        if (cfg.rewriteMode == null || cfg.rewriteMode.isBlank()) cfg.rewriteMode = "print";
+        cfg.rewriteMode = cfg.rewriteMode.trim().toLowerCase();
 
-            cfg.exclude = cleanStringList(cfg.exclude);
+        if (cfg.generateStudentPdf == null) cfg.generateStudentPdf = true;
+        if (cfg.generateStudentTxt == null) cfg.generateStudentTxt = true;
+        if (cfg.pdfSharedFonts == null) cfg.pdfSharedFonts = true;
+        if (cfg.pdfTemplate == null) cfg.pdfTemplate = true;
+        if (cfg.generateManifest == null) cfg.generateManifest = true;
 
-            for (MethodCut mc : cfg.methods) {
-                if (mc == null) continue;
+        if (cfg.input != null) cfg.input = cfg.input.trim();
+        if (cfg.output != null) cfg.output = cfg.output.trim();
+        if (cfg.excludeFile != null) cfg.excludeFile = cfg.excludeFile.trim();
+        if (cfg.index != null) cfg.index = cfg.index.isBlank() ? null : cfg.index.trim();
+        if (cfg.inputHash != null) cfg.inputHash = cfg.inputHash.trim();
+        if (cfg.stats != null) cfg.stats = cfg.stats.isBlank() ? null : cfg.stats.trim();
+        if (cfg.jfr != null) cfg.jfr = cfg.jfr.isBlank() ? null : cfg.jfr.trim();
 
-                if (mc.id != null) mc.id = mc.id.trim();
-                if (mc.cut == null || mc.cut.isBlank()) mc.cut = "full";
-                mc.cut = mc.cut.trim().toLowerCase();
+        cfg.exclude = cleanStringList(cfg.exclude);
 
-                if (mc.keepStatements == null) mc.keepStatements = 1;
+        if (cfg.copyExclude == null) cfg.copyExclude = new ArrayList<>(DEFAULT_COPY_EXCLUDE);
+        cfg.copyInclude = cleanStringList(cfg.copyInclude);
+        cfg.copyExclude = cleanStringList(cfg.copyExclude);
+        if (cfg.buildDirs == null) cfg.buildDirs = new ArrayList<>(DEFAULT_BUILD_DIRS);
+        cfg.buildDirs = cleanStringList(cfg.buildDirs);
 
-                // nettoyage optionnel
-                if (mc.score != null && (mc.score.isNaN() || mc.score.isInfinite())) {
-                    mc.score = null;
-                }
-            }
+        normalizeCuts(cfg.methods);
+
+        return cfg;
+    }
 
-            return cfg;
+    private static void normalizeCuts(List<MethodCut> cuts) {
+        for (MethodCut mc : cuts) {
+            if (mc == null) continue;
+
+            if (mc.id != null) mc.id = mc.id.trim();
+            if (mc.cut == null || mc.cut.isBlank()) mc.cut = "full";
+            mc.cut = mc.cut.trim().toLowerCase();
+
+            if (mc.keepStatements == null) mc.keepStatements = 1;
+
+            // nettoyage optionnel
+            if (mc.score != null && (mc.score.isNaN() || mc.score.isInfinite())) {
+                mc.score = null;
+            }
         }
     }
 
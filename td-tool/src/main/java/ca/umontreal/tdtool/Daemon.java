@@ -0,0 +1,283 @@
+package ca.umontreal.tdtool;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Long-lived td-tool process: JavaParser, PDFBox and the JIT stay warm between runs.
+ *
+ * Listens on a Unix domain socket readable and writable by its owner only. A request is one
+ * YAML document, sent by the client before it half-closes the connection:
+ *
+ * <pre>
+ * cwd: /home/me/course        # relative paths are resolved against it
+ * args: [--config, td.yaml]   # same arguments as the td-tool command line
+ * config: {input: ..., ...}   # optional: inline config, same keys as a config file
+ * </pre>
+ *
+ * {@code command: stop} shuts the daemon down. The response is a sequence of lines
+ * "out TEXT" / "err TEXT" (what the run printed), then "exit CODE": 0 on success,
+ * 1 on failure, 2 on usage errors and malformed requests.
+ *
+ * Requests run one at a time, on the accepting thread: a run swaps System.out/err to
+ * capture its output, and RunStats is process-wide, so concurrent runs would mix up.
+ * A client therefore gets {@link #REQUEST_TIMEOUT_MS} to send at most {@link #MAX_REQUEST_BYTES},
+ * so that one stuck client cannot hold back the others.
+ */
+final class Daemon {
+
+    private static final DateTimeFormatter CLOCK = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    static final long REQUEST_TIMEOUT_MS = 10_000;
+    static final int MAX_REQUEST_BYTES = 1 << 20;
+
+    /** The request could not be read: too large, too slow or not a YAML mapping. */
+    private static final class BadRequestException extends IOException {
+        BadRequestException(String message) {
+            super(message);
+        }
+    }
+
+    private Daemon() {}
+
+    /** @param spec socket path, or null for the default socket (see DaemonClient.address) */
+    static void serve(String spec) throws IOException {
+        SocketAddress address = DaemonClient.address(spec);
+        Path socketFile = ((UnixDomainSocketAddress) address).getPath();
+
+        try (ServerSocketChannel server = open(address, socketFile)) {
+            PrintStream log = System.out;
+            log.println("td-tool daemon listening on " + describe(address) + " (pid " + ProcessHandle.current().pid() + ")");
+
+            while (true) {
+                try (SocketChannel client = server.accept()) {
+                    if (!handle(client, log)) break;
+                } catch (IOException e) {
+                    log.println("Warning: request aborted (" + e.getMessage() + ")");
+                } catch (RuntimeException e) {
+                    // a bug in one request must not take the daemon down with it
+                    log.println("Warning: request failed (" + e + ")");
+                }
+            }
+            log.println("td-tool daemon stopped");
+        } finally {
+            Files.deleteIfExists(socketFile);
+        }
+    }
+
+    private static ServerSocketChannel open(SocketAddress address, Path socketFile) throws IOException {
+        if (Files.exists(socketFile)) {
+            if (listening(address)) {
+                throw new IOException("A daemon is already listening on " + socketFile);
+            }
+            // left behind by a daemon that did not stop cleanly
+            Files.delete(socketFile);
+        }
+
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(address);
+        try {
+            Files.setPosixFilePermissions(socketFile, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX filesystem (Windows): the temporary directory is already per-user
+        }
+        return server;
+    }
+
+    private static boolean listening(SocketAddress address) {
+        try (SocketChannel probe = SocketChannel.open(address)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String describe(SocketAddress address) {
+        return ((UnixDomainSocketAddress) address).getPath().toString();
+    }
+
+    /** Runs one request. Returns false when the client asked the daemon to stop. */
+    private static boolean handle(SocketChannel client, PrintStream log) throws IOException {
+        long t0 = System.nanoTime();
+        OutputStream sink = Channels.newOutputStream(client);
+        Map<String, Object> request;
+        try {
+            request = readRequest(client);
+        } catch (BadRequestException e) {
+            sink.write(("err Error: bad request (" + e.getMessage() + ")\nexit 2\n").getBytes(StandardCharsets.UTF_8));
+            sink.flush();
+            log.printf(Locale.ROOT, "[%s] bad request: %s%n", LocalTime.now().format(CLOCK), e.getMessage());
+            return true;
+        }
+
+        if ("stop".equals(request.get("command"))) {
+            sink.write("exit 0\n".getBytes(StandardCharsets.UTF_8));
+            return false;
+        }
+
+        List<String> args = new ArrayList<>();
+        if (request.get("args") instanceof List<?> list) {
+            for (Object o : list) args.add(String.valueOf(o));
+        }
+        Path cwd = (request.get("cwd") != null) ? Paths.get(String.valueOf(request.get("cwd"))) : null;
+
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        LineFramer outLines = new LineFramer(sink, "out ");
+        LineFramer errLines = new LineFramer(sink, "err ");
+        PrintStream out = new PrintStream(outLines, true, StandardCharsets.UTF_8);
+        PrintStream err = new PrintStream(errLines, true, StandardCharsets.UTF_8);
+
+        int code;
+        System.setOut(out);
+        System.setErr(err);
+        try {
+            Config base = null;
+            if (request.get("config") instanceof Map<?, ?> inline) {
+                base = Config.parse(new Yaml().dump(inline));
+            }
+            Main.run(args.toArray(new String[0]), cwd, base);
+            code = 0;
+        } catch (Main.UsageException e) {
+            Main.printUsage(err);
+            code = 2;
+        } catch (Exception | LinkageError e) {
+            err.println("Error: " + e);
+            code = 1;
+        } finally {
+            out.flush();
+            err.flush();
+            outLines.end();
+            errLines.end();
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+
+        sink.write(("exit " + code + "\n").getBytes(StandardCharsets.UTF_8));
+        sink.flush();
+
+        log.printf(Locale.ROOT, "[%s] %s -> exit %d in %.0f ms%n",
+                LocalTime.now().format(CLOCK), String.join(" ", args), code, (System.nanoTime() - t0) / 1e6);
+        return true;
+    }
+
+    private static Map<String, Object> readRequest(SocketChannel client) throws IOException {
+        String text = new String(readUntilEof(client), StandardCharsets.UTF_8);
+        Object doc;
+        try {
+            doc = new Yaml(new SafeConstructor(new LoaderOptions())).load(text);
+        } catch (YAMLException e) {
+            throw new BadRequestException("malformed YAML: " + e.getMessage().replaceAll("\\s+", " ").trim());
+        }
+        if (!(doc instanceof Map<?, ?> map)) {
+            throw new BadRequestException("request is not a YAML mapping");
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> request = (Map<String, Object>) map;
+        return request;
+    }
+
+    /**
+     * Reads the request up to the client's half-close, within REQUEST_TIMEOUT_MS and
+     * MAX_REQUEST_BYTES. Blocking channel reads ignore SO_TIMEOUT, hence the selector; the
+     * channel is back in blocking mode when this returns.
+     */
+    private static byte[] readUntilEof(SocketChannel client) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        long deadline = System.nanoTime() + REQUEST_TIMEOUT_MS * 1_000_000;
+
+        client.configureBlocking(false);
+        try (Selector selector = Selector.open()) {
+            client.register(selector, SelectionKey.OP_READ);
+            while (true) {
+                long left = (deadline - System.nanoTime()) / 1_000_000;
+                if (left <= 0) {
+                    throw new BadRequestException("no complete request within " + REQUEST_TIMEOUT_MS + " ms");
+                }
+                selector.select(left);
+                selector.selectedKeys().clear();
+
+                int n;
+                while ((n = client.read(buf.clear())) > 0) {
+                    if (request.size() + n > MAX_REQUEST_BYTES) {
+                        throw new BadRequestException("request larger than " + MAX_REQUEST_BYTES + " bytes");
+                    }
+                    request.write(buf.array(), 0, n);
+                }
+                if (n < 0) break;
+            }
+        } finally {
+            // closing the selector deregisters the channel, which blocking mode requires
+            client.configureBlocking(true);
+        }
+        return request.toByteArray();
+    }
+
+    /**
+     * Prefixes every line written through it, so the client can tell stdout from stderr.
+     * Lines are sent as soon as they are complete; flush() does not cut a line in two.
+     */
+    private static final class LineFramer extends OutputStream {
+        private final OutputStream sink;
+        private final byte[] prefix;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        LineFramer(OutputStream sink, String prefix) {
+            this.sink = sink;
+            this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if (b == '\n') {
+                emit();
+            } else if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        /** Sends the last line if the run did not end it with a newline. */
+        synchronized void end() throws IOException {
+            if (line.size() > 0) emit();
+        }
+
+        private void emit() throws IOException {
+            // out and err share the socket: whole lines only
+            synchronized (sink) {
+                sink.write(prefix);
+                line.writeTo(sink);
+                sink.write('\n');
+                sink.flush();
+            }
+            line.reset();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ca.umontreal.tdtool;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thin client for {@link Daemon}: forwards its command-line arguments and working directory
+ * to a running daemon and replays the daemon's output. It only uses the JDK, so starting it
+ * loads none of JavaParser, SnakeYAML or PDFBox.
+ *
+ * <pre>
+ * java -cp td-tool.jar ca.umontreal.tdtool.DaemonClient [--socket path] [--stop] &lt;td-tool arguments&gt;
+ * </pre>
+ *
+ * When no daemon is reachable, the run happens in this process instead.
+ */
+public final class DaemonClient {
+
+    private DaemonClient() {}
+
+    public static void main(String[] args) throws Exception {
+        System.exit(run(args));
+    }
+
+    /** Default socket: td-tool-USER.sock in the temporary directory. */
+    static Path defaultSocket() {
+        String user = System.getProperty("user.name", "user").replaceAll("[^A-Za-z0-9_.-]", "_");
+        return Paths.get(System.getProperty("java.io.tmpdir"), "td-tool-" + user + ".sock");
+    }
+
+    /**
+     * Socket path, or null for the default socket. There is no TCP mode: a loopback port would
+     * let any local user run generations (and overwrite outputs) as the daemon's owner.
+     */
+    static SocketAddress address(String spec) {
+        if (spec == null || spec.isBlank()) return UnixDomainSocketAddress.of(defaultSocket());
+        return UnixDomainSocketAddress.of(Paths.get(spec).toAbsolutePath());
+    }
+
+    /** Returns the exit code of the run. */
+    static int run(String[] args) throws Exception {
+        String socket = null;
+        boolean stop = false;
+        List<String> forwarded = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--socket" -> { if (i + 1 < args.length) socket = args[++i]; }
+                case "--stop" -> stop = true;
+                default -> forwarded.add(args[i]);
+            }
+        }
+
+        SocketAddress address = address(socket);
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(address);
+        } catch (IOException e) {
+            if (stop) {
+                System.err.println("No td-tool daemon running on " + address);
+                return 0;
+            }
+            System.err.println("Note: no td-tool daemon on " + address + ", running in this process"
+                    + " (start one with: java -jar td-tool.jar --daemon)");
+            try {
+                Main.run(forwarded.toArray(new String[0]), null, null);
+                return 0;
+            } catch (Main.UsageException usage) {
+                Main.printUsage(System.err);
+                return 2;
+            }
+        }
+
+        try (channel) {
+            OutputStream out = Channels.newOutputStream(channel);
+            out.write(request(stop, forwarded).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            channel.shutdownOutput();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("out ")) {
+                    System.out.println(line.substring(4));
+                } else if (line.startsWith("err ")) {
+                    System.err.println(line.substring(4));
+                } else if (line.startsWith("exit ")) {
+                    return Integer.parseInt(line.substring(5).trim());
+                }
+            }
+        }
+        System.err.println("td-tool daemon closed the connection before the end of the run");
+        return 1;
+    }
+
+    /** The request YAML, written by hand to keep SnakeYAML out of the client. */
+    private static String request(boolean stop, List<String> args) {
+        if (stop) return "command: stop\n";
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("cwd: ").append(quote(Paths.get("").toAbsolutePath().toString())).append('\n');
+        sb.append("args:\n");
+        for (String a : args) {
+            sb.append("- ").append(quote(a)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** YAML double-quoted scalar. */
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\x%02x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
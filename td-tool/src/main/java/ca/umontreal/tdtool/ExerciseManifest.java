@@ -0,0 +1,66 @@
+package ca.umontreal.tdtool;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Manifeste écrit à la racine de chaque projet exercice (td-manifest.yaml).
+ *
+ * Il enregistre la graine, l'empreinte des sources de référence et les coupures retenues.
+ * Le fichier a la forme d'une configuration td-tool : le rejouer avec --config régénère
+ * exactement le même exercice (mode manuel, mêmes coupures).
+ */
+final class ExerciseManifest {
+
+    static final String FILE_NAME = "td-manifest.yaml";
+
+    private ExerciseManifest() {}
+
+    static void write(Path file, Config cfg, Path input, Path output, Long seed, String inputHash,
+                      List<StudentHandout.StubbedMethod> methods) throws IOException {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("input", input.toString());
+        root.put("output", output.toString());
+        root.put("mode", cfg.mode);
+        if (seed != null) root.put("seed", seed);
+        root.put("inputHash", inputHash);
+        root.put("materialize", cfg.materialize);
+        // splice et print ne produisent pas les mêmes octets : le mode fait partie de l'exercice
+        root.put("rewriteMode", cfg.rewriteMode);
+        if (!cfg.copyInclude.isEmpty()) root.put("copyInclude", cfg.copyInclude);
+        root.put("copyExclude", cfg.copyExclude);
+        root.put("buildDirs", cfg.buildDirs);
+        root.put("studentHandoutBaseName", cfg.studentHandoutBaseName);
+        root.put("generateStudentTxt", cfg.generateStudentTxt);
+        root.put("generateStudentPdf", cfg.generateStudentPdf);
+
+        List<Map<String, Object>> cuts = new ArrayList<>();
+        for (StudentHandout.StubbedMethod m : methods) {
+            Map<String, Object> cut = new LinkedHashMap<>();
+            cut.put("id", m.id);
+            cut.put("cut", m.cut);
+            if (m.keepStatements != null) cut.put("keepStatements", m.keepStatements);
+            cuts.add(cut);
+        }
+        root.put("methods", cuts);
+
+        DumperOptions opts = new DumperOptions();
+        opts.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        opts.setIndent(2);
+
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("# Généré par td-tool : rejouer avec --config " + FILE_NAME + "\n");
+            new Yaml(opts).dump(root, w);
+        }
+    }
+}
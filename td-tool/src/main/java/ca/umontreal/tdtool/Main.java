@@ -7,34 +7,145 @@ import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.ObjectCreationExpr;
 import com.github.javaparser.ast.expr.StringLiteralExpr;
 import com.github.javaparser.ast.stmt.*;
-
+import com.github.javaparser.printer.DefaultPrettyPrinter;
+import com.github.javaparser.printer.configuration.DefaultConfigurationOption;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration.ConfigOption;
+import com.github.javaparser.printer.configuration.PrinterConfiguration;
+import com.github.javaparser.utils.LineSeparator;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class Main {
 
-    private enum CutLevel { FULL, PARTIAL }
+    enum CutLevel { FULL, PARTIAL }
+
+    /** How a file receiving cuts is written: pretty-printed tree, or bodies spliced into the original text. */
+    enum RewriteMode { PRINT, SPLICE }
 
-    private static class MethodHandle {
+    /**
+     * One source file of the reference project. The same CompilationUnit is used for method
+     * discovery and for the cut phase, so each file is parsed at most once per run. A file
+     * found unchanged in the td-analyzer method index is only parsed if it receives a cut.
+     */
+    /**
+     * A scanned source file. The scan lists its methods as ordinal + line handles and releases
+     * its tree, so memory does not grow with the project; only files that receive a cut are
+     * parsed again, once, and that tree is then shared by all batch variants.
+     */
+    static class ParsedSource {
         final Path file;
+        final byte[] sha256;
+        // true if the methods of the file were listed from the method index, not from its tree
+        final boolean fromIndex;
+        // time spent parsing the file to list its methods (0 when listed from the index)
+        final long scanNanos;
+        private CompilationUnit cu;
+        private List<MethodDeclaration> declarations;
+        private long parseNanos;
+
+        ParsedSource(Path file, long scanNanos, byte[] sha256, boolean fromIndex) {
+            this.file = file;
+            this.scanNanos = scanNanos;
+            this.sha256 = sha256;
+            this.fromIndex = fromIndex;
+        }
+
+        /** The tree of the file, parsed on first use (batch variants share it). */
+        synchronized CompilationUnit cu() {
+            if (cu == null) {
+                byte[] content;
+                try {
+                    content = content();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                long t0 = System.nanoTime();
+                cu = StaticJavaParser.parse(new String(content, StandardCharsets.UTF_8));
+                parseNanos = System.nanoTime() - t0;
+            }
+            return cu;
+        }
+
+        /** The bytes of the file, read again; fails if they are not the ones that were scanned. */
+        byte[] content() throws IOException {
+            byte[] content = Files.readAllBytes(file);
+            if (!Arrays.equals(sha256().digest(content), sha256)) {
+                throw new IllegalStateException("Source file changed during the run: " + file);
+            }
+            return content;
+        }
+
+        /** cu().findAll(MethodDeclaration.class), taken before any in-place cut changes the tree. */
+        synchronized List<MethodDeclaration> declarations() {
+            if (declarations == null) declarations = cu().findAll(MethodDeclaration.class);
+            return declarations;
+        }
+
+        /** Time spent parsing the file for its cuts, 0 if it received none. */
+        synchronized long parseNanos() {
+            return parseNanos;
+        }
+    }
+
+    static class MethodHandle {
+        final ParsedSource source;
+        // null until declaration() resolves it in the tree of the source
+        private MethodDeclaration declaration;
+        // position in source.cu().findAll(MethodDeclaration.class), used to find the method in a clone
+        final int ordinal;
+        // first line of the declaration, checked whenever the method is looked up by ordinal
+        final int line;
         final String prettyId;
-        final String methodName;
-        final String paramTypes;
 
-        MethodHandle(Path file, String prettyId, String methodName, String paramTypes) {
-            this.file = file;
+        /** Its declaration is resolved (and checked against the line) when it is cut. */
+        MethodHandle(ParsedSource source, int ordinal, int line, String prettyId) {
+            this.source = source;
+            this.ordinal = ordinal;
+            this.line = line;
             this.prettyId = prettyId;
-            this.methodName = methodName;
-            this.paramTypes = paramTypes;
+        }
+
+        synchronized MethodDeclaration declaration() {
+            if (declaration == null) declaration = in(source.declarations());
+            return declaration;
+        }
+
+        /**
+         * This method in {@code declarations} (of the file or of a clone). Fails if the
+         * declaration at its ordinal is not the expected one, e.g. an index from another
+         * JavaParser that walks the tree differently.
+         */
+        MethodDeclaration in(List<MethodDeclaration> declarations) {
+            MethodDeclaration md = (ordinal < declarations.size()) ? declarations.get(ordinal) : null;
+            if (md == null || beginLine(md) != line || !prettyId.contains("#" + md.getNameAsString() + "(")) {
+                throw new IllegalStateException("Method " + prettyId + " not found at line " + line
+                        + " of " + source.file + " (out-of-date method index?)");
+            }
+            return md;
+        }
+
+        static int beginLine(MethodDeclaration md) {
+            return md.getBegin().map(p -> p.line).orElse(0);
         }
     }
 
-    private static class ChosenCut {
+    static class ChosenCut {
         final MethodHandle method;
         final CutLevel level;
         final int keepStatements;
@@ -46,14 +157,72 @@ public class Main {
         }
     }
 
+    /** Cuts chosen for one exercise, and the seed used in random mode (null in manual mode). */
+    private static class Selection {
+        final List<ChosenCut> cuts;
+        final Long seed;
+
+        Selection(List<ChosenCut> cuts, Long seed) {
+            this.cuts = cuts;
+            this.seed = seed;
+        }
+    }
+
+    /** Everything selection needs, shared (read-only) by all variants of a run. */
+    private static class Candidates {
+        final Map<String, MethodHandle> byId;
+        final List<MethodHandle> random;
+
+        Candidates(Map<String, MethodHandle> byId, List<MethodHandle> random) {
+            this.byId = byId;
+            this.random = random;
+        }
+    }
+
+    /** Missing or invalid command-line arguments: main prints the usage and exits with 2. */
+    static final class UsageException extends IllegalArgumentException {
+        UsageException() {
+            super("missing --input/--output (or a --config file providing them)");
+        }
+    }
+
     public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "--daemon".equals(args[0])) {
+            Daemon.serve(args.length > 1 ? args[1] : null);
+            return;
+        }
+        if (args.length > 0 && "--client".equals(args[0])) {
+            System.exit(DaemonClient.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
 
+        try {
+            run(args, null, null);
+        } catch (UsageException e) {
+            printUsage(System.err);
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Parses command-line arguments on top of {@code base} (an inline config, or null) and runs
+     * td-tool. With {@code cwd} set (daemon mode), relative paths are resolved against it rather
+     * than against the working directory of this process.
+     */
+    static void run(String[] args, Path cwd, Config base) throws Exception {
         String configPath = null;
 
         String input = null;
         String output = null;
         Integer randomCount = null;
         String mode = null;
+        String materialize = null;
+        Integer variants = null;
+        Integer threads = null;
+        String rewrite = null;
+        Long seed = null;
+        String stats = null;
+        String jfr = null;
+        String index = null;
 
         boolean listOnly = false;
 
@@ -64,19 +233,42 @@ public class Main {
                 case "--output" -> { if (i + 1 < args.length) output = args[++i]; }
                 case "--random" -> { if (i + 1 < args.length) randomCount = Integer.parseInt(args[++i]); }
                 case "--mode" -> { if (i + 1 < args.length) mode = args[++i]; }
+                case "--materialize" -> { if (i + 1 < args.length) materialize = args[++i]; }
+                case "--variants" -> { if (i + 1 < args.length) variants = Integer.parseInt(args[++i]); }
+                case "--threads" -> { if (i + 1 < args.length) threads = Integer.parseInt(args[++i]); }
+                case "--rewrite" -> { if (i + 1 < args.length) rewrite = args[++i]; }
+                case "--seed" -> { if (i + 1 < args.length) seed = Long.parseLong(args[++i]); }
+                case "--stats" -> { if (i + 1 < args.length) stats = args[++i]; }
+                case "--jfr" -> { if (i + 1 < args.length) jfr = args[++i]; }
+                case "--index" -> { if (i + 1 < args.length) index = args[++i]; }
                 case "--list" -> listOnly = true;
             }
         }
 
-        Config cfg = (configPath != null) ? Config.load(Paths.get(configPath)) : new Config();
+        Config cfg;
+        if (configPath != null) {
+            cfg = Config.load((cwd != null) ? cwd.resolve(configPath) : Paths.get(configPath));
+        } else {
+            cfg = (base != null) ? base : new Config();
+        }
 
         if (input != null) cfg.input = input;
         if (output != null) cfg.output = output;
         if (randomCount != null) cfg.random = randomCount;
         if (mode != null) cfg.mode = mode;
+        if (materialize != null) cfg.materialize = materialize;
+        if (variants != null) cfg.variants = variants;
+        if (threads != null) cfg.threads = threads;
+        if (rewrite != null) cfg.rewriteMode = rewrite;
+        if (seed != null) cfg.seed = seed;
+        if (stats != null) cfg.stats = stats;
+        if (jfr != null) cfg.jfr = jfr;
+        if (index != null) cfg.index = index;
+
+        if (cwd != null) cfg.resolvePaths(cwd);
 
         if (cfg.input == null || cfg.output == null) {
-            printUsageAndExit();
+            throw new UsageException();
         }
 
         cfg.mode = (cfg.mode == null) ? "" : cfg.mode.trim();
@@ -84,7 +276,29 @@ public class Main {
             throw new IllegalArgumentException("--mode must be 'business' or 'any'");
         }
 
+        run(cfg, listOnly);
+    }
+
+    /** Runs td-tool, recording per-phase stats when cfg.stats or cfg.jfr is set. */
+    private static void run(Config cfg, boolean listOnly) throws Exception {
+        if (cfg.stats == null && cfg.jfr == null) {
+            execute(cfg, listOnly);
+            return;
+        }
+
+        RunStats stats = RunStats.install(cfg.jfr != null ? Paths.get(cfg.jfr) : null);
+        stats.mode(listOnly ? "list" : cfg.isBatch() ? "batch" : "single");
+        try {
+            execute(cfg, listOnly);
+        } finally {
+            RunStats.uninstall();
+            stats.finish(cfg.stats != null ? Paths.get(cfg.stats) : null, System.out);
+        }
+    }
+
+    private static void execute(Config cfg, boolean listOnly) throws Exception {
         boolean manualMode = (cfg.methods != null && !cfg.methods.isEmpty());
+        boolean batchMode = cfg.isBatch();
 
         if (!manualMode && !listOnly) {
             if (cfg.random == null || cfg.random <= 0) {
@@ -112,18 +326,21 @@ public class Main {
         Path in = Paths.get(cfg.input).toAbsolutePath().normalize();
         Path out = Paths.get(cfg.output).toAbsolutePath().normalize();
 
-        System.out.println("Copying reference project from: " + in);
-        deleteIfExists(out);
-        copyDirectory(in, out);
-
-        Path srcRoot = out.resolve("src/main/java");
-        if (!Files.exists(srcRoot)) {
-            throw new IllegalStateException("src/main/java not found in output project: " + srcRoot);
+        // The reference project is scanned in place: nothing is written before selection,
+        // so the materializer knows which files will be rewritten and never copies them.
+        // Multi-module projects: every module listed in the reactor poms is scanned.
+        List<Path> srcRoots = MavenModules.sourceRoots(in, "src/main/java");
+        if (srcRoots.isEmpty()) {
+            throw new IllegalStateException("src/main/java not found in reference project or its modules: " + in);
         }
 
-        List<MethodHandle> allCandidates = collectCandidateMethods(srcRoot, cfg.mode);
+        Map<Path, ParsedSource> parsed = new LinkedHashMap<>();
+        List<MethodHandle> allCandidates;
+        try (RunStats.Span span = RunStats.span(RunStats.Phase.SCAN)) {
+            allCandidates = collectCandidateMethods(srcRoots, cfg.mode, parsed, threads(cfg), loadIndex(cfg, in));
+        }
         if (allCandidates.isEmpty()) {
-            throw new IllegalStateException("No stubbable methods found under: " + srcRoot + " (mode=" + cfg.mode + ")");
+            throw new IllegalStateException("No stubbable methods found under: " + srcRoots + " (mode=" + cfg.mode + ")");
         }
 
         if (listOnly) {
@@ -145,66 +362,246 @@ public class Main {
             throw new IllegalStateException("Random mode: after exclusions, no stubbable methods remain (mode=" + cfg.mode + ")");
         }
 
-        List<ChosenCut> chosenCuts = new ArrayList<>();
-        Long seedUsed = null;
+        Candidates candidates = new Candidates(byId, randomCandidates);
+
+        String inputHash = inputHash(in, parsed.values());
+        checkInputHash(cfg, inputHash);
+
+        if (batchMode) {
+            runBatch(cfg, in, out, candidates, parsed.values(), inputHash);
+            return;
+        }
+
+        Selection selection;
+        try (RunStats.Span span = RunStats.span(RunStats.Phase.SELECT)) {
+            selection = manualMode
+                    ? selectManual(cfg, cfg.methods, candidates, System.out)
+                    : selectRandom(cfg, candidates, (cfg.seed != null) ? cfg.seed : new SecureRandom().nextLong(), System.out);
+        }
 
-        if (manualMode) {
-            System.out.println("Selection mode: MANUAL (" + cfg.methods.size() + " method(s) requested)");
+        Thread cleanup = deleteInBackground(moveAside(out));
 
-            for (Config.MethodCut req : cfg.methods) {
-                if (req == null || req.id == null || req.id.isBlank()) continue;
+        Collection<ParsedSource> cutFiles = generateVariant(cfg, in, out, selection, inputHash, true, System.out);
+        printParseReport(parsed.values(), cutFiles);
 
-                String reqId = req.id.trim();
-                MethodHandle mh = byId.get(reqId);
-                if (mh == null) {
-                    String msg = "Method not found in project: " + reqId;
-                    if (Boolean.TRUE.equals(cfg.ignoreMissingMethods)) {
-                        System.err.println("Warning: " + msg);
-                        continue;
+        if (cleanup != null) cleanup.join();
+
+        System.out.println("Done. Generated exercise at: " + out);
+
+        String base = handoutBaseName(cfg);
+
+        if (Boolean.TRUE.equals(cfg.generateStudentTxt)) {
+            System.out.println("Handout TXT: " + out.resolve(base + ".txt"));
+        }
+        if (Boolean.TRUE.equals(cfg.generateStudentPdf)) {
+            System.out.println("Handout PDF: " + out.resolve(base + ".pdf"));
+        }
+
+        System.out.println("Next: cd \"" + out + "\" && mvn test");
+    }
+
+    // --------------------- Batch mode ---------------------
+
+    /**
+     * Generates several exercise variants from the single parse done by run().
+     * Variants come from cfg.variantSets (explicit method sets), cfg.variantSeeds
+     * (one random selection per seed) or cfg.variants (N random selections), in that
+     * order of precedence. With cfg.seed set, the N seeds are derived from it, so the
+     * whole batch is reproducible. Each variant is written to out/<name> by a bounded pool;
+     * the original ASTs are never modified, each variant cuts its own clones.
+     */
+    private static void runBatch(Config cfg, Path in, Path out, Candidates candidates,
+                                 Collection<ParsedSource> parsed, String inputHash) throws Exception {
+        List<String> names = new ArrayList<>();
+        List<Function<PrintStream, Selection>> selections = new ArrayList<>();
+
+        if (!cfg.variantSets.isEmpty()) {
+            for (int i = 0; i < cfg.variantSets.size(); i++) {
+                Config.VariantSet set = cfg.variantSets.get(i);
+                names.add(variantName(set.name, i));
+                selections.add(log -> selectManual(cfg, set.methods, candidates, log));
+            }
+        } else if (!cfg.variantSeeds.isEmpty()) {
+            for (int i = 0; i < cfg.variantSeeds.size(); i++) {
+                long seed = cfg.variantSeeds.get(i);
+                names.add(variantName(null, i));
+                selections.add(log -> selectRandom(cfg, candidates, seed, log));
+            }
+        } else {
+            SplittableRandom seeds = new SplittableRandom((cfg.seed != null) ? cfg.seed : new SecureRandom().nextLong());
+            for (int i = 0; i < cfg.variants; i++) {
+                long seed = seeds.nextLong();
+                names.add(variantName(null, i));
+                selections.add(log -> selectRandom(cfg, candidates, seed, log));
+            }
+        }
+
+        int threads = threads(cfg);
+        RunStats.variants(names.size());
+
+        System.out.println("Batch mode: " + names.size() + " variant(s) into " + out + " (" + threads + " thread(s))");
+        Thread cleanup = deleteInBackground(moveAside(out));
+        Files.createDirectories(out);
+
+        long t0 = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, names.size())));
+        List<Future<String>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < names.size(); i++) {
+                String name = names.get(i);
+                Function<PrintStream, Selection> select = selections.get(i);
+                results.add(pool.submit(() -> {
+                    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                    PrintStream log = new PrintStream(buf, true, StandardCharsets.UTF_8);
+                    Selection sel;
+                    try (RunStats.Span span = RunStats.span(RunStats.Phase.SELECT)) {
+                        sel = select.apply(log);
                     }
-                    throw new IllegalArgumentException(msg);
+                    generateVariant(cfg, in, out.resolve(name), sel, inputHash, false, log);
+                    log.flush();
+                    return "[" + name + "]" + System.lineSeparator() + buf.toString(StandardCharsets.UTF_8);
+                }));
+            }
+
+            List<String> failures = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    System.out.print(results.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+                    failures.add(names.get(i) + ": " + cause);
+                    System.err.println("[" + names.get(i) + "] FAILED: " + cause);
                 }
+            }
 
-                CutLevel level = parseCutLevel(req.cut);
-                int keep = Math.max(0, (req.keepStatements == null ? 1 : req.keepStatements));
+            if (cleanup != null) cleanup.join();
 
-                chosenCuts.add(new ChosenCut(mh, level, keep));
-            }
+            long totalParse = parsed.stream().mapToLong(ps -> ps.scanNanos + ps.parseNanos()).sum();
+            System.out.printf(Locale.ROOT, "Batch done: %d/%d variant(s) in %.1f ms; reference parsed (scan + cut files) in %.1f ms%n",
+                    names.size() - failures.size(), names.size(), (System.nanoTime() - t0) / 1_000_000.0,
+                    totalParse / 1_000_000.0);
 
-            if (chosenCuts.isEmpty()) {
-                throw new IllegalStateException("Manual mode: no valid methods selected (check config.yml 'methods')");
+            if (!failures.isEmpty()) {
+                throw new IllegalStateException(failures.size() + " variant(s) failed: " + String.join("; ", failures));
             }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 
-        } else {
-            System.out.println("Selection mode: RANDOM");
+    private static String variantName(String name, int index) {
+        if (name != null && !name.isBlank()) return name.trim();
+        return String.format(Locale.ROOT, "variant-%03d", index + 1);
+    }
 
-            int n = Math.min(cfg.random, randomCandidates.size());
+    // --------------------- Selection ---------------------
 
-            seedUsed = new SecureRandom().nextLong();
-            Random rng = new Random(seedUsed);
-            Collections.shuffle(randomCandidates, rng);
+    /** @param log where to report the selection, or null to stay quiet */
+    private static Selection selectManual(Config cfg, List<Config.MethodCut> requested, Candidates candidates,
+                                          PrintStream log) {
+        if (log != null) log.println("Selection mode: MANUAL (" + requested.size() + " method(s) requested)");
 
-            List<MethodHandle> picked = randomCandidates.subList(0, n);
-            for (MethodHandle mh : picked) {
-                chosenCuts.add(new ChosenCut(mh, CutLevel.FULL, 0));
+        List<ChosenCut> chosenCuts = new ArrayList<>();
+        for (Config.MethodCut req : requested) {
+            if (req == null || req.id == null || req.id.isBlank()) continue;
+
+            String reqId = req.id.trim();
+            MethodHandle mh = candidates.byId.get(reqId);
+            if (mh == null) {
+                String msg = "Method not found in project: " + reqId;
+                if (Boolean.TRUE.equals(cfg.ignoreMissingMethods)) {
+                    System.err.println("Warning: " + msg);
+                    continue;
+                }
+                throw new IllegalArgumentException(msg);
             }
 
-            System.out.println("Selected " + n + " method(s) to stub (seed=" + seedUsed + ")");
+            CutLevel level = parseCutLevel(req.cut);
+            int keep = Math.max(0, (req.keepStatements == null ? 1 : req.keepStatements));
+
+            chosenCuts.add(new ChosenCut(mh, level, keep));
+        }
+
+        if (chosenCuts.isEmpty()) {
+            throw new IllegalStateException("Manual mode: no valid methods selected (check config.yml 'methods')");
         }
 
+        printCuts(chosenCuts, log);
+        return new Selection(chosenCuts, null);
+    }
+
+    private static Selection selectRandom(Config cfg, Candidates candidates, long seed, PrintStream log) {
+        if (log != null) log.println("Selection mode: RANDOM");
+
+        // Shuffled copy: the candidate list is shared by every variant of a batch.
+        // Candidates are sorted first so that a seed gives the same draw on any filesystem.
+        List<MethodHandle> pool = new ArrayList<>(candidates.random);
+        pool.sort(Comparator.comparing(m -> m.prettyId));
+        int n = Math.min(cfg.random, pool.size());
+
+        Random rng = new Random(seed);
+        Collections.shuffle(pool, rng);
+
+        List<ChosenCut> chosenCuts = new ArrayList<>();
+        for (MethodHandle mh : pool.subList(0, n)) {
+            chosenCuts.add(new ChosenCut(mh, CutLevel.FULL, 0));
+        }
+
+        if (log != null) log.println("Selected " + n + " method(s) to stub (seed=" + seed + ")");
+        printCuts(chosenCuts, log);
+        return new Selection(chosenCuts, seed);
+    }
+
+    private static void printCuts(List<ChosenCut> chosenCuts, PrintStream log) {
+        if (log == null) return;
         for (ChosenCut cc : chosenCuts) {
-            System.out.println("  - " + cc.method.prettyId + "  [" + cc.level
+            log.println("  - " + cc.method.prettyId + "  [" + cc.level
                     + (cc.level == CutLevel.PARTIAL ? (", keep=" + cc.keepStatements) : "") + "]");
         }
+    }
 
-        Map<Path, List<ChosenCut>> byFileCuts = chosenCuts.stream()
-                .collect(Collectors.groupingBy(cc -> cc.method.file));
+    // --------------------- Generation of one exercise ---------------------
 
-        for (Map.Entry<Path, List<ChosenCut>> entry : byFileCuts.entrySet()) {
-            applyCutsInFile(entry.getKey(), entry.getValue());
+    /**
+     * Materializes one exercise project at {@code out}, writes its cut sources and handout.
+     *
+     * @param inPlace true to cut the shared ASTs directly (single run), false to cut clones
+     *                so the parsed reference can serve other variants
+     * @return the source files that received cuts
+     */
+    private static Collection<ParsedSource> generateVariant(Config cfg, Path in, Path out, Selection selection,
+                                                           String inputHash, boolean inPlace,
+                                                           PrintStream log) throws IOException {
+        Map<ParsedSource, List<ChosenCut>> byFileCuts = selection.cuts.stream()
+                .collect(Collectors.groupingBy(cc -> cc.method.source, LinkedHashMap::new, Collectors.toList()));
+
+        String base = handoutBaseName(cfg);
+
+        Set<Path> rewritten = new HashSet<>();
+        for (ParsedSource ps : byFileCuts.keySet()) rewritten.add(in.relativize(ps.file));
+        if (Boolean.TRUE.equals(cfg.generateStudentTxt)) rewritten.add(Paths.get(base + ".txt"));
+        if (Boolean.TRUE.equals(cfg.generateStudentPdf)) rewritten.add(Paths.get(base + ".pdf"));
+        if (Boolean.TRUE.equals(cfg.generateManifest)) rewritten.add(Paths.get(ExerciseManifest.FILE_NAME));
+
+        ProjectMaterializer.Mode materializeMode = ProjectMaterializer.parseMode(cfg.materialize);
+        log.println("Materializing reference project from: " + in + " (mode=" + materializeMode.name().toLowerCase() + ")");
+
+        // In a batch, variants already run in parallel: materialize each one sequentially.
+        ProjectMaterializer.Filter filter = ProjectMaterializer.Filter.of(cfg.copyInclude, cfg.copyExclude, cfg.buildDirs);
+        ProjectMaterializer materializer = inPlace
+                ? new ProjectMaterializer(materializeMode, filter)
+                : new ProjectMaterializer(materializeMode, filter, 1);
+        try (RunStats.Span span = RunStats.span(RunStats.Phase.COPY)) {
+            materializer.materialize(in, out, rewritten);
         }
+        log.println("  " + materializer.copiedFiles() + " file(s) copied, " + materializer.linkedFiles()
+                + " linked, " + rewritten.size() + " written by td-tool; skipped " + materializer.skippedDirectories()
+                + " excluded dir(s) and " + materializer.skippedFiles() + " file(s)");
+
+        // In a batch, variants already run in parallel: cut each variant's files sequentially.
+        applyCuts(byFileCuts, in, out, inPlace, parseRewriteMode(cfg.rewriteMode), inPlace ? threads(cfg) : 1);
 
-        List<StudentHandout.StubbedMethod> stubbed = chosenCuts.stream()
+        List<StudentHandout.StubbedMethod> stubbed = selection.cuts.stream()
                 .map(cc -> new StudentHandout.StubbedMethod(
                         cc.method.prettyId,
                         cc.level.toString().toLowerCase(),
@@ -214,31 +611,145 @@ public class Main {
 
         StudentHandout.generate(out, cfg, stubbed);
 
-        System.out.println("Done. Generated exercise at: " + out);
+        if (Boolean.TRUE.equals(cfg.generateManifest)) {
+            Long seed = (selection.seed != null) ? selection.seed : cfg.seed;
+            try (RunStats.Span span = RunStats.span(RunStats.Phase.WRITE)) {
+                ExerciseManifest.write(out.resolve(ExerciseManifest.FILE_NAME), cfg, in, out, seed, inputHash, stubbed);
+            }
+        }
 
-        String base = (cfg.studentHandoutBaseName == null || cfg.studentHandoutBaseName.isBlank())
-                ? "ENONCE_TD"
-                : cfg.studentHandoutBaseName;
+        return byFileCuts.keySet();
+    }
 
-        if (Boolean.TRUE.equals(cfg.generateStudentTxt)) {
-            System.out.println("Handout TXT: " + out.resolve(base + ".txt"));
+    /**
+     * Cuts and writes every file of {@code byFileCuts}, on up to {@code threads} pool threads.
+     * Files are independent: each one is cut and written by a single thread, JavaParser keeps
+     * its configuration per thread and print() owns its printer configuration. A file that
+     * fails does not stop the others; once all are done, the failures are reported together.
+     */
+    private static void applyCuts(Map<ParsedSource, List<ChosenCut>> byFileCuts, Path in, Path out,
+                                  boolean inPlace, RewriteMode rewrite, int threads) throws IOException {
+        List<ParsedSource> files = new ArrayList<>(byFileCuts.keySet());
+        List<String> failures = new ArrayList<>();
+
+        if (threads <= 1 || files.size() < 2) {
+            for (ParsedSource ps : files) {
+                try {
+                    applyCutsInFile(ps, byFileCuts.get(ps), out.resolve(in.relativize(ps.file)), inPlace, rewrite);
+                } catch (IOException | RuntimeException e) {
+                    failures.add(in.relativize(ps.file) + ": " + e);
+                }
+            }
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+            try {
+                List<Future<?>> pending = new ArrayList<>(files.size());
+                for (ParsedSource ps : files) {
+                    pending.add(pool.submit(() -> {
+                        applyCutsInFile(ps, byFileCuts.get(ps), out.resolve(in.relativize(ps.file)), inPlace, rewrite);
+                        return null;
+                    }));
+                }
+                for (int i = 0; i < pending.size(); i++) {
+                    try {
+                        pending.get(i).get();
+                    } catch (ExecutionException e) {
+                        Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+                        if (cause instanceof Error error) throw error;
+                        failures.add(in.relativize(files.get(i).file) + ": " + cause);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while cutting files into " + out, e);
+                    }
+                }
+            } finally {
+                pool.shutdownNow();
+            }
         }
-        if (Boolean.TRUE.equals(cfg.generateStudentPdf)) {
-            System.out.println("Handout PDF: " + out.resolve(base + ".pdf"));
+
+        if (!failures.isEmpty()) {
+            for (String f : failures) System.err.println("FAILED to cut " + f);
+            throw new IllegalStateException(failures.size() + " of " + files.size() + " file(s) could not be cut: "
+                    + String.join("; ", failures));
         }
+    }
 
-        System.out.println("Next: cd \"" + out + "\" && mvn test");
+    /**
+     * SHA-256 over the reference sources (relative path + content hash of each file, in
+     * path order). Together with the seed, it identifies a generated variant.
+     */
+    private static String inputHash(Path in, Collection<ParsedSource> parsed) {
+        MessageDigest md = sha256();
+        parsed.stream()
+                .sorted(Comparator.comparing(ps -> ps.file))
+                .forEach(ps -> {
+                    md.update(in.relativize(ps.file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+                    md.update((byte) 0);
+                    md.update(ps.sha256);
+                });
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /**
+     * A replayed manifest carries the hash of the sources it was generated from: the same seed
+     * and cuts on other sources would give another exercise, so refuse to generate it.
+     */
+    private static void checkInputHash(Config cfg, String inputHash) {
+        if (cfg.inputHash == null || cfg.inputHash.isEmpty() || cfg.inputHash.equalsIgnoreCase(inputHash)) return;
+
+        throw new IllegalStateException("Reference sources changed since the manifest was written (inputHash "
+                + cfg.inputHash + ", sources now " + inputHash + "): replaying it would not regenerate the same"
+                + " exercise. Remove inputHash from the configuration to generate from the current sources anyway.");
     }
 
-    private static void printUsageAndExit() {
-        System.err.println("Usage:");
-        System.err.println("  java -jar td-tool.jar --config <file.yaml> [--list]");
-        System.err.println("  OR");
-        System.err.println("  java -jar td-tool.jar --input <path> --output <path> --random <N> [--mode business|any] [--list]");
-        System.err.println("");
-        System.err.println("Options:");
-        System.err.println("  --list   List method IDs detected in the project, then exit.");
-        System.exit(2);
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The td-analyzer method index named by cfg.index, or null (none, or unusable: every file is parsed). */
+    private static MethodIndex loadIndex(Config cfg, Path in) {
+        if (cfg.index == null) return null;
+        try {
+            return MethodIndex.load(Paths.get(cfg.index), in);
+        } catch (IOException e) {
+            System.err.println("Warning: method index not used, all files will be parsed (" + e + ")");
+            return null;
+        }
+    }
+
+    private static String handoutBaseName(Config cfg) {
+        return (cfg.studentHandoutBaseName == null || cfg.studentHandoutBaseName.isBlank())
+                ? "ENONCE_TD"
+                : cfg.studentHandoutBaseName;
+    }
+
+    static void printUsage(PrintStream err) {
+        err.println("Usage:");
+        err.println("  java -jar td-tool.jar --config <file.yaml> [--list]");
+        err.println("  OR");
+        err.println("  java -jar td-tool.jar --input <path> --output <path> --random <N> [--mode business|any] [--list]");
+        err.println("  OR, through a running daemon (same arguments):");
+        err.println("  java -jar td-tool.jar --daemon [socket-path]");
+        err.println("  java -cp td-tool.jar ca.umontreal.tdtool.DaemonClient [--socket socket-path] <arguments>");
+        err.println("");
+        err.println("Options:");
+        err.println("  --list                    List method IDs detected in the project, then exit.");
+        err.println("  --stats <file.json>       Write per-phase wall/CPU/allocation stats as JSON.");
+        err.println("  --jfr <file.jfr>          Record phases as JFR events into this file.");
+        err.println("  --index <file>            Method index written by td-analyzer --index: unchanged files");
+        err.println("                            are only parsed if they receive a cut.");
+        err.println("  --seed <long>             Random mode: fixed seed, for reproducible selections.");
+        err.println("  --variants <N>            Batch mode: generate N random variants into <output>/variant-NNN.");
+        err.println("  --threads <N>             Modules scanned, files cut and batch variants generated in");
+        err.println("                            parallel (default: all cores).");
+        err.println("  --rewrite print|splice    Pretty-print files receiving cuts (default), or replace only");
+        err.println("                            the cut bodies and keep the rest of each file byte-identical.");
+        err.println("  --materialize copy|link   Copy the reference project (default) or hard-link the");
+        err.println("                            files td-tool does not rewrite (falls back to copy).");
     }
 
     private static void printDetectedMethods(List<MethodHandle> allCandidates) {
@@ -249,7 +760,27 @@ public class Main {
                 .forEach(System.out::println);
         System.out.println("=== Total: " + allCandidates.size() + " ===");
         System.out.println("Note: if a method is not found, check parameter types (e.g., int vs Integer), overloads,");
-        System.out.println("or whether the file is under src/main/java.");
+        System.out.println("or whether the file is under src/main/java (of the project or of a module listed in <modules>).");
+    }
+
+    /**
+     * Before the AST was shared, every file receiving a cut was parsed a second time.
+     * The time saved is therefore the original parse time of those files.
+     * With a method index, only changed files and cut files were parsed.
+     */
+    private static void printParseReport(Collection<ParsedSource> parsed, Collection<ParsedSource> cutFiles) {
+        List<ParsedSource> scanned = parsed.stream().filter(ps -> !ps.fromIndex).collect(Collectors.toList());
+        double scanMs = scanned.stream().mapToLong(ps -> ps.scanNanos).sum() / 1_000_000.0;
+        double cutMs = cutFiles.stream().mapToLong(ParsedSource::parseNanos).sum() / 1_000_000.0;
+
+        long indexed = parsed.size() - scanned.size();
+        if (indexed > 0) {
+            System.out.printf(Locale.ROOT, "Method index: %d of %d file(s) unchanged (listed without parsing); parsed %d other file(s) in %.1f ms and %d cut file(s) in %.1f ms%n",
+                    indexed, parsed.size(), scanned.size(), scanMs, cutFiles.size(), cutMs);
+            return;
+        }
+        System.out.printf(Locale.ROOT, "Parsed %d file(s) in %.1f ms to list methods (trees released); parsed %d cut file(s) again in %.1f ms%n",
+                parsed.size(), scanMs, cutFiles.size(), cutMs);
     }
 
     // --------------------- Cut logic ---------------------
@@ -263,35 +794,75 @@ public class Main {
         };
     }
 
-    private static void applyCutsInFile(Path file, List<ChosenCut> cuts) throws IOException {
-        CompilationUnit cu = StaticJavaParser.parse(file);
+    static RewriteMode parseRewriteMode(String s) {
+        if (s == null || s.isBlank()) return RewriteMode.PRINT;
+        return switch (s.trim().toLowerCase(Locale.ROOT)) {
+            case "print" -> RewriteMode.PRINT;
+            case "splice" -> RewriteMode.SPLICE;
+            default -> throw new IllegalArgumentException("rewriteMode must be 'print' or 'splice'");
+        };
+    }
+
+    static void applyCutsInFile(ParsedSource source, List<ChosenCut> cuts, Path target,
+                                boolean inPlace) throws IOException {
+        applyCutsInFile(source, cuts, target, inPlace, RewriteMode.PRINT);
+    }
 
-        Map<String, ChosenCut> wanted = new HashMap<>();
-        for (ChosenCut cc : cuts) {
-            String key = cc.method.methodName + "|" + cc.method.paramTypes;
-            wanted.put(key, cc);
+    /**
+     * Applies the cuts on the MethodDeclarations found during scanning, then prints the
+     * (already parsed) CompilationUnit to the output project. When {@code inPlace} is
+     * false, a clone of the CompilationUnit is cut instead and the original stays intact.
+     * In SPLICE mode the tree is left untouched and the bodies are replaced in the original
+     * text (see SourceSplicer); a file that cannot be spliced is printed.
+     */
+    static void applyCutsInFile(ParsedSource source, List<ChosenCut> cuts, Path target,
+                                boolean inPlace, RewriteMode rewrite) throws IOException {
+        if (rewrite == RewriteMode.SPLICE) {
+            if (SourceSplicer.write(source, cuts, target)) return;
+            System.err.println("Note: cuts in " + source.file + " cannot be spliced (nested cut methods?), pretty-printing it");
         }
 
-        for (MethodDeclaration md : cu.findAll(MethodDeclaration.class)) {
-            if (md.getBody().isEmpty()) continue;
+        String printed;
+        try (RunStats.Span span = RunStats.span(RunStats.Phase.CUT)) {
+            CompilationUnit cu = inPlace ? source.cu() : source.cu().clone();
+            List<MethodDeclaration> cloned = inPlace ? null : cu.findAll(MethodDeclaration.class);
 
-            String name = md.getNameAsString();
-            String paramTypes = md.getParameters().stream()
-                    .map(pr -> pr.getType().asString())
-                    .collect(Collectors.joining(","));
+            // resolved before cutting: a cut body may hold methods of anonymous classes
+            List<MethodDeclaration> targets = new ArrayList<>(cuts.size());
+            for (ChosenCut cc : cuts) {
+                targets.add(inPlace ? cc.method.declaration() : cc.method.in(cloned));
+            }
 
-            String key = name + "|" + paramTypes;
-            ChosenCut cc = wanted.get(key);
-            if (cc == null) continue;
+            for (int i = 0; i < cuts.size(); i++) {
+                ChosenCut cc = cuts.get(i);
+                MethodDeclaration md = targets.get(i);
+                if (md.getBody().isEmpty()) continue;
 
-            if (cc.level == CutLevel.FULL) {
-                md.setBody(fullStubBody());
-            } else {
-                md.setBody(partialStubBody(md.getBody().get(), cc.keepStatements));
+                if (cc.level == CutLevel.FULL) {
+                    md.setBody(fullStubBody());
+                } else {
+                    md.setBody(partialStubBody(md.getBody().get(), cc.keepStatements));
+                }
             }
+            printed = print(cu);
         }
 
-        Files.writeString(file, cu.toString(), StandardCharsets.UTF_8, StandardOpenOption.TRUNCATE_EXISTING);
+        try (RunStats.Span span = RunStats.span(RunStats.Phase.WRITE)) {
+            Files.createDirectories(target.getParent());
+            Files.writeString(target, printed, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Same output as cu.toString(), but with a printer configuration owned by this call:
+     * Node.toString() adds its line-separator option to a static shared configuration,
+     * which breaks when several files are printed concurrently.
+     */
+    private static String print(CompilationUnit cu) {
+        PrinterConfiguration conf = new DefaultPrinterConfiguration()
+                .addOption(new DefaultConfigurationOption(ConfigOption.END_OF_LINE_CHARACTER,
+                        cu.getLineEndingStyleOrDefault(LineSeparator.SYSTEM).asRawString()));
+        return new DefaultPrettyPrinter(conf).print(cu);
     }
 
     private static BlockStmt fullStubBody() {
@@ -329,7 +900,7 @@ public class Main {
         return stub;
     }
 
-    private static boolean isTerminalStatement(Statement st) {
+    static boolean isTerminalStatement(Statement st) {
         return st.isReturnStmt()
                 || st.isThrowStmt()
                 || st.isBreakStmt()
@@ -338,29 +909,120 @@ public class Main {
 
     // --------------------- JavaParser scanning ---------------------
 
-    private static List<MethodHandle> collectCandidateMethods(Path srcRoot, String mode) throws IOException {
+    private static int threads(Config cfg) {
+        return (cfg.threads == null || cfg.threads <= 0)
+                ? Runtime.getRuntime().availableProcessors()
+                : cfg.threads;
+    }
+
+    /**
+     * Scans several source roots (one per Maven module) with up to {@code threads} modules
+     * parsed at once. Each module fills its own map and list; they are merged in module
+     * order, so the result does not depend on scheduling.
+     */
+    static List<MethodHandle> collectCandidateMethods(List<Path> srcRoots, String mode, Map<Path, ParsedSource> parsed,
+                                                      int threads, MethodIndex index) throws IOException {
+        if (threads <= 1 || srcRoots.size() <= 1) {
+            List<MethodHandle> methods = new ArrayList<>();
+            for (Path srcRoot : srcRoots) {
+                methods.addAll(collectCandidateMethods(srcRoot, mode, parsed, index));
+            }
+            return methods;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, srcRoots.size()));
+        try {
+            List<Map<Path, ParsedSource>> moduleParsed = new ArrayList<>();
+            List<Future<List<MethodHandle>>> pending = new ArrayList<>();
+            for (Path srcRoot : srcRoots) {
+                Map<Path, ParsedSource> local = new LinkedHashMap<>();
+                moduleParsed.add(local);
+                pending.add(pool.submit(() -> {
+                    try (RunStats.Span span = RunStats.workerSpan(RunStats.Phase.SCAN)) {
+                        return collectCandidateMethods(srcRoot, mode, local, index);
+                    }
+                }));
+            }
+
+            List<MethodHandle> methods = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i++) {
+                try {
+                    methods.addAll(pending.get(i).get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException io) throw io;
+                    throw new IOException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while scanning " + srcRoots.get(i), e);
+                }
+                parsed.putAll(moduleParsed.get(i));
+            }
+            return methods;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Parses every source file under srcRoot once to list its methods, then drops the tree.
+     * Each file is registered in {@code parsed}; the cut phase parses only the files it cuts.
+     * StaticJavaParser keeps its configuration per thread, so modules can be scanned
+     * concurrently.
+     */
+    static List<MethodHandle> collectCandidateMethods(Path srcRoot, String mode,
+                                                      Map<Path, ParsedSource> parsed) throws IOException {
+        return collectCandidateMethods(srcRoot, mode, parsed, null);
+    }
+
+    /**
+     * Same, with a td-analyzer method index (or null): a file whose SHA-256 matches its
+     * indexed entry is not parsed, its methods are taken from the index. Other files
+     * (changed, new, or not indexed) are parsed as usual.
+     */
+    static List<MethodHandle> collectCandidateMethods(Path srcRoot, String mode, Map<Path, ParsedSource> parsed,
+                                                      MethodIndex index) throws IOException {
         List<MethodHandle> methods = new ArrayList<>();
 
-        Files.walk(srcRoot)
-                .filter(p -> p.toString().endsWith(".java"))
-                .forEach(p -> {
+        List<Path> files;
+        try (var walk = Files.walk(srcRoot)) {
+            files = walk.filter(p -> p.toString().endsWith(".java")).sorted().collect(Collectors.toList());
+        }
+
+        files.forEach(p -> {
                     try {
-                        CompilationUnit cu = StaticJavaParser.parse(p);
+                        byte[] content = Files.readAllBytes(p);
+                        byte[] hash = sha256().digest(content);
+
+                        MethodIndex.FileEntry indexed = (index != null) ? index.get(p) : null;
+                        if (indexed != null && Arrays.equals(indexed.sha256(), hash)) {
+                            ParsedSource source = new ParsedSource(p, 0, hash, true);
+                            parsed.put(p, source);
+                            for (MethodIndex.Method m : indexed.methods()) {
+                                if ("business".equalsIgnoreCase(mode) && isAccessorName(m.name())) continue;
+                                methods.add(new MethodHandle(source, m.ordinal(), m.beginLine(), m.id()));
+                            }
+                            return;
+                        }
+
+                        // the tree is only walked here: it becomes garbage with this file
+                        long t0 = System.nanoTime();
+                        CompilationUnit cu = StaticJavaParser.parse(new String(content, StandardCharsets.UTF_8));
+                        ParsedSource source = new ParsedSource(p, System.nanoTime() - t0, hash, false);
+                        parsed.put(p, source);
 
                         String pkg = cu.getPackageDeclaration()
                                 .map(pd -> pd.getNameAsString())
                                 .orElse("");
 
-                        for (MethodDeclaration md : cu.findAll(MethodDeclaration.class)) {
+                        List<MethodDeclaration> declarations = cu.findAll(MethodDeclaration.class);
+                        for (int ordinal = 0; ordinal < declarations.size(); ordinal++) {
+                            MethodDeclaration md = declarations.get(ordinal);
                             if (md.getBody().isEmpty()) continue;
                             if (md.isNative()) continue;
                             if (isMainMethod(md)) continue;
 
-                            if ("business".equalsIgnoreCase(mode)) {
-                                String name = md.getNameAsString();
-                                if (name.startsWith("get") || name.startsWith("set") || name.startsWith("is")) {
-                                    continue;
-                                }
+                            if ("business".equalsIgnoreCase(mode) && isAccessorName(md.getNameAsString())) {
+                                continue;
                             }
 
                             Optional<ClassOrInterfaceDeclaration> parentClass =
@@ -376,7 +1038,7 @@ public class Main {
 
                             String prettyId = fqn + "#" + md.getNameAsString() + "(" + paramTypes + ")";
 
-                            methods.add(new MethodHandle(p, prettyId, md.getNameAsString(), paramTypes));
+                            methods.add(new MethodHandle(source, ordinal, MethodHandle.beginLine(md), prettyId));
                         }
                     } catch (Exception e) {
                         System.err.println("Warning: could not parse " + p + " (" + e.getMessage() + ")");
@@ -386,6 +1048,10 @@ public class Main {
         return methods;
     }
 
+    private static boolean isAccessorName(String name) {
+        return name.startsWith("get") || name.startsWith("set") || name.startsWith("is");
+    }
+
     private static boolean isMainMethod(MethodDeclaration md) {
         if (!md.getNameAsString().equals("main")) return false;
         if (!md.isStatic()) return false;
@@ -397,39 +1063,24 @@ public class Main {
 
     // --------------------- filesystem helpers ---------------------
 
-    private static void deleteIfExists(Path path) throws IOException {
-        if (!Files.exists(path)) return;
-
-        Files.walkFileTree(path, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                Files.delete(file);
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                Files.delete(dir);
-                return FileVisitResult.CONTINUE;
-            }
-        });
+    /** Deletes a previous output (already moved aside) while the new one is materialized. */
+    private static Path moveAside(Path dir) throws IOException {
+        try (RunStats.Span span = RunStats.span(RunStats.Phase.DELETE)) {
+            return ProjectMaterializer.moveAside(dir);
+        }
     }
 
-    private static void copyDirectory(Path source, Path target) throws IOException {
-        Files.walkFileTree(source, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                Path rel = source.relativize(dir);
-                Files.createDirectories(target.resolve(rel));
-                return FileVisitResult.CONTINUE;
-            }
+    private static Thread deleteInBackground(Path dir) {
+        if (dir == null) return null;
 
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                Path rel = source.relativize(file);
-                Files.copy(file, target.resolve(rel), StandardCopyOption.REPLACE_EXISTING);
-                return FileVisitResult.CONTINUE;
+        Thread t = new Thread(() -> {
+            try (RunStats.Span span = RunStats.span(RunStats.Phase.DELETE)) {
+                ProjectMaterializer.deleteTree(dir);
+            } catch (IOException e) {
+                System.err.println("Warning: could not delete previous output " + dir + " (" + e.getMessage() + ")");
             }
-        });
+        }, "td-tool-cleanup");
+        t.start();
+        return t;
     }
 }
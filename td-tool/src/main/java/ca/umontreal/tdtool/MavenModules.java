@@ -0,0 +1,103 @@
+package ca.umontreal.tdtool;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Module discovery for multi-module (reactor) Maven projects.
+ *
+ * Reads {@code <project><modules>} from the root pom.xml, then from every module pom
+ * (nested aggregators). The root project is always part of the result, so a single-module
+ * project simply yields [root]. An unreadable pom is treated as having no modules.
+ */
+final class MavenModules {
+
+    private MavenModules() {}
+
+    /** The project directory and all of its modules, root first, in declared reactor order. */
+    static List<Path> moduleRoots(Path projectRoot) {
+        Set<Path> seen = new LinkedHashSet<>();
+        collect(projectRoot.normalize(), seen);
+        return new ArrayList<>(seen);
+    }
+
+    /** Existing {@code sub} directories (e.g. src/main/java) of the project and its modules. */
+    static List<Path> sourceRoots(Path projectRoot, String sub) {
+        List<Path> roots = new ArrayList<>();
+        for (Path module : moduleRoots(projectRoot)) {
+            Path dir = module.resolve(sub);
+            if (Files.isDirectory(dir)) roots.add(dir);
+        }
+        return roots;
+    }
+
+    private static void collect(Path dir, Set<Path> seen) {
+        if (!seen.add(dir)) return; // declared twice, or a cycle
+
+        for (String module : declaredModules(dir.resolve("pom.xml"))) {
+            Path child = dir.resolve(module).normalize();
+            // <module> may point at a pom file rather than a directory
+            if (child.getFileName() != null && child.getFileName().toString().endsWith(".xml")) {
+                child = child.getParent();
+            }
+            if (child != null && Files.isDirectory(child)) collect(child, seen);
+        }
+    }
+
+    /** Text of each {@code <module>} directly under {@code <project><modules>}. */
+    static List<String> declaredModules(Path pom) {
+        List<String> modules = new ArrayList<>();
+        if (!Files.isRegularFile(pom)) return modules;
+
+        Document doc;
+        try {
+            doc = newBuilder().parse(pom.toFile());
+        } catch (Exception e) {
+            System.err.println("Warning: could not read " + pom + " (" + e.getMessage() + "), modules ignored");
+            return modules;
+        }
+
+        Element project = doc.getDocumentElement();
+        for (Element list : children(project, "modules")) {
+            for (Element m : children(list, "module")) {
+                String name = m.getTextContent().trim();
+                if (!name.isEmpty()) modules.add(name);
+            }
+        }
+        return modules;
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> out = new ArrayList<>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node n = nodes.item(i);
+            if (n instanceof Element e && name.equals(e.getLocalName() != null ? e.getLocalName() : e.getTagName())) {
+                out.add(e);
+            }
+        }
+        return out;
+    }
+
+    private static DocumentBuilder newBuilder() throws Exception {
+        DocumentBuilderFactory f = DocumentBuilderFactory.newInstance();
+        f.setNamespaceAware(true);
+        // a pom needs neither a DTD nor external entities
+        f.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        f.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        f.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        return f.newDocumentBuilder();
+    }
+}
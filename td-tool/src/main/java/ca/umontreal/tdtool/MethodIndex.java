@@ -0,0 +1,96 @@
+package ca.umontreal.tdtool;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Method index written by td-analyzer ({@code --index}): for each source file of the reference
+ * project, its SHA-256 and its stubbable methods (position in cu.findAll(MethodDeclaration.class),
+ * line range and id). A file whose content still has the indexed hash does not need to be parsed
+ * to list its methods; td-tool parses it only if it receives a cut.
+ *
+ * <pre>
+ * td-index  1
+ * file  src/main/java/p/A.java  &lt;sha256 hex&gt;
+ * method  &lt;ordinal&gt;  &lt;begin line&gt;  &lt;end line&gt;  p.A#m(int)
+ * </pre>
+ *
+ * Fields are tab-separated. See td.analyzer.analysis.MethodIndex for the writer.
+ */
+final class MethodIndex {
+
+    private static final String HEADER = "td-index\t1";
+
+    record Method(int ordinal, int beginLine, int endLine, String id) {
+        String name() {
+            return id.substring(id.indexOf('#') + 1, id.indexOf('('));
+        }
+    }
+
+    record FileEntry(byte[] sha256, List<Method> methods) {}
+
+    private final Map<Path, FileEntry> files;
+
+    private MethodIndex(Map<Path, FileEntry> files) {
+        this.files = files;
+    }
+
+    /** Indexed entry of a source file (absolute, normalized path), or null if it is not indexed. */
+    FileEntry get(Path file) {
+        return files.get(file);
+    }
+
+    int size() {
+        return files.size();
+    }
+
+    /**
+     * @param projectRoot the reference project: indexed paths are relative to it
+     * @throws IOException if the file is unreadable, malformed or of another format version
+     */
+    static MethodIndex load(Path indexFile, Path projectRoot) throws IOException {
+        Map<Path, FileEntry> files = new HashMap<>();
+        HexFormat hex = HexFormat.of();
+
+        try (BufferedReader in = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(in.readLine())) {
+                throw new IOException("not a td-index file (or another version): " + indexFile);
+            }
+
+            List<Method> current = null;
+            String line;
+            int lineNo = 1;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isEmpty()) continue;
+                String[] f = line.split("\t", -1);
+                try {
+                    if (f[0].equals("file") && f.length == 3) {
+                        current = new ArrayList<>();
+                        Path file = projectRoot.resolve(f[1]).normalize();
+                        files.put(file, new FileEntry(hex.parseHex(f[2]), current));
+                    } else if (f[0].equals("method") && f.length == 5 && current != null) {
+                        if (f[4].indexOf('(') < f[4].indexOf('#') + 2) {
+                            throw new IllegalArgumentException("bad method id " + f[4]);
+                        }
+                        current.add(new Method(Integer.parseInt(f[1]), Integer.parseInt(f[2]),
+                                Integer.parseInt(f[3]), f[4]));
+                    } else {
+                        throw new IllegalArgumentException("unexpected entry");
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(indexFile + ":" + lineNo + ": malformed line (" + e.getMessage() + ")");
+                }
+            }
+        }
+        return new MethodIndex(files);
+    }
+}
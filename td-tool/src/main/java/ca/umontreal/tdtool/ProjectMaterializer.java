@@ -0,0 +1,276 @@
+package ca.umontreal.tdtool;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Materializes the output project from the reference project.
+ *
+ * Files that td-tool is about to rewrite (cut sources, handouts) are never copied:
+ * they are written fresh afterwards. Every other file is either:
+ * - "copy": copied with NIO, in parallel;
+ * - "link": hard-linked to the reference file, falling back to a copy when the
+ *   filesystem refuses (cross-device, FAT, ...). Linked files share their content
+ *   with the reference project: editing them in the exercise edits the reference.
+ *
+ * The JDK has no reflink (copy-on-write clone) API, so "link" uses hard links only.
+ *
+ * A {@link Filter} (Config.copyInclude / copyExclude / buildDirs) decides what is materialized
+ * at all: excluded directories such as .git/ or a module's target/ are skipped as whole subtrees.
+ */
+final class ProjectMaterializer {
+
+    enum Mode { COPY, LINK }
+
+    private final Mode mode;
+    private final Filter filter;
+    private final int threads;
+
+    private volatile boolean linkSupported = true;
+    private int linkedFiles;
+    private int copiedFiles;
+    private int skippedDirectories;
+    private int skippedFiles;
+
+    ProjectMaterializer(Mode mode, Filter filter) {
+        this(mode, filter, Runtime.getRuntime().availableProcessors());
+    }
+
+    ProjectMaterializer(Mode mode, Filter filter, int threads) {
+        this.mode = mode;
+        this.filter = filter;
+        this.threads = Math.max(1, threads);
+    }
+
+    static Mode parseMode(String s) {
+        if (s == null || s.isBlank()) return Mode.COPY;
+        return switch (s.trim().toLowerCase(Locale.ROOT)) {
+            case "copy" -> Mode.COPY;
+            case "link" -> Mode.LINK;
+            default -> throw new IllegalArgumentException("materialize must be 'copy' or 'link'");
+        };
+    }
+
+    /**
+     * @param skip paths, relative to source, that must not be copied or linked
+     */
+    void materialize(Path source, Path target, Set<Path> skip) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.createDirectories(target);
+
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Path rel = source.relativize(dir);
+                if (rel.toString().isEmpty()) return FileVisitResult.CONTINUE;
+
+                if (filter.excludesDirectory(source, rel)) {
+                    skippedDirectories++;
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                // with an include list, directories are created on demand by transfer()
+                if (!filter.hasIncludes()) Files.createDirectories(target.resolve(rel));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                Path rel = source.relativize(file);
+                if (skip.contains(rel)) return FileVisitResult.CONTINUE;
+
+                if (filter.accepts(rel)) {
+                    files.add(rel);
+                } else {
+                    skippedFiles++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        if (threads <= 1 || files.size() < 2) {
+            for (Path rel : files) {
+                transfer(source.resolve(rel), target.resolve(rel));
+            }
+            return;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+        try {
+            List<Future<?>> pending = new ArrayList<>(files.size());
+            for (Path rel : files) {
+                pending.add(pool.submit(() -> {
+                    try (RunStats.Span span = RunStats.workerSpan(RunStats.Phase.COPY)) {
+                        transfer(source.resolve(rel), target.resolve(rel));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : pending) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException io) throw io;
+                    throw new IOException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while materializing " + target, e);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void transfer(Path from, Path to) throws IOException {
+        if (filter.hasIncludes()) Files.createDirectories(to.getParent());
+
+        if (mode == Mode.LINK && linkSupported) {
+            try {
+                Files.createLink(to, from);
+                countLinked();
+                return;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                // links not usable here (cross-device, FAT, permissions): copy from now on
+                linkSupported = false;
+            }
+        }
+        Files.copy(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        countCopied();
+    }
+
+    private synchronized void countLinked() {
+        linkedFiles++;
+    }
+
+    private synchronized void countCopied() {
+        copiedFiles++;
+    }
+
+    synchronized int linkedFiles() {
+        return linkedFiles;
+    }
+
+    synchronized int copiedFiles() {
+        return copiedFiles;
+    }
+
+    int skippedDirectories() {
+        return skippedDirectories;
+    }
+
+    int skippedFiles() {
+        return skippedFiles;
+    }
+
+    /**
+     * Glob-based include / exclude rules, matched against paths relative to the project root,
+     * plus build directories (by name) skipped only at the root of a module.
+     */
+    static final class Filter {
+        private final List<PathMatcher> includes;
+        private final List<PathMatcher> excludes;
+        private final Set<String> buildDirs;
+
+        private Filter(List<PathMatcher> includes, List<PathMatcher> excludes, Set<String> buildDirs) {
+            this.includes = includes;
+            this.excludes = excludes;
+            this.buildDirs = buildDirs;
+        }
+
+        static Filter of(List<String> include, List<String> exclude, List<String> buildDirs) {
+            return new Filter(matchers(include), matchers(exclude),
+                    (buildDirs == null) ? Set.of() : Set.copyOf(buildDirs));
+        }
+
+        static Filter none() {
+            return new Filter(List.of(), List.of(), Set.of());
+        }
+
+        private static List<PathMatcher> matchers(List<String> globs) {
+            List<PathMatcher> out = new ArrayList<>();
+            if (globs == null) return out;
+            for (String g : globs) {
+                out.add(FileSystems.getDefault().getPathMatcher("glob:" + g));
+            }
+            return out;
+        }
+
+        boolean hasIncludes() {
+            return !includes.isEmpty();
+        }
+
+        boolean excludes(Path rel) {
+            for (PathMatcher m : excludes) {
+                if (m.matches(rel)) return true;
+            }
+            return false;
+        }
+
+        /**
+         * A directory is skipped if an exclude glob matches it, or if it is a build directory
+         * (e.g. target) directly under the project root or under a directory with a pom.xml.
+         * A package named target deeper in src/ is therefore kept.
+         */
+        boolean excludesDirectory(Path root, Path rel) {
+            if (excludes(rel)) return true;
+            if (!buildDirs.contains(rel.getFileName().toString())) return false;
+
+            Path parent = rel.getParent();
+            return parent == null || Files.isRegularFile(root.resolve(parent).resolve("pom.xml"));
+        }
+
+        boolean accepts(Path rel) {
+            if (excludes(rel)) return false;
+            if (includes.isEmpty()) return true;
+            for (PathMatcher m : includes) {
+                if (m.matches(rel)) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Moves an existing output directory out of the way (same parent, so the rename is
+     * atomic and cheap) and returns the renamed path, to be deleted later with
+     * {@link #deleteTree}. Returns null if the path does not exist.
+     */
+    static Path moveAside(Path path) throws IOException {
+        if (!Files.exists(path)) return null;
+
+        Path aside = path.resolveSibling(path.getFileName() + ".td-old-" + System.nanoTime());
+        try {
+            return Files.move(path, aside, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // rename refused (open handles on Windows, ...): delete in place
+            deleteTree(path);
+            return null;
+        }
+    }
+
+    static void deleteTree(Path path) throws IOException {
+        if (path == null || !Files.exists(path)) return;
+
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,281 @@
+package ca.umontreal.tdtool;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.Timespan;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-phase instrumentation of a td-tool run: wall time, CPU time and allocated bytes.
+ *
+ * CPU time and allocations come from the ThreadMXBean of the thread running the phase.
+ * Work handed to pool threads (parallel copy) is measured on those threads and added to
+ * the same phase without adding wall time. In batch mode variants run concurrently, and in
+ * a single run files are cut and written concurrently, so the wall times of those phases are
+ * summed over threads and can exceed the run's wall time.
+ *
+ * One instance is installed per run ({@link #install}); without one, {@link #span} is a
+ * no-op. In JFR mode every span is also committed as a "ca.umontreal.tdtool.Phase" event
+ * into a recording dumped at the end of the run.
+ */
+final class RunStats {
+
+    enum Phase { DELETE, COPY, SCAN, SELECT, CUT, WRITE, TXT, PDF }
+
+    /** A running measurement; closing it adds its deltas to the phase totals. */
+    interface Span extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    @Name("ca.umontreal.tdtool.Phase")
+    @Label("td-tool phase")
+    @Category("td-tool")
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("CPU Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long cpuTime;
+
+        @Label("Allocated")
+        @DataAmount(DataAmount.BYTES)
+        long allocated;
+    }
+
+    private static final Span NOOP = () -> {};
+    private static volatile RunStats current;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final com.sun.management.ThreadMXBean allocations;
+    private final boolean cpuSupported;
+
+    private final LongAdder[] counts = adders();
+    private final LongAdder[] wall = adders();
+    private final LongAdder[] cpu = adders();
+    private final LongAdder[] allocated = adders();
+
+    private final Recording recording;
+    private final Path jfrFile;
+
+    private final long startNanos = System.nanoTime();
+    private final long startProcessCpu;
+    private final long startGcCount;
+    private final long startGcMillis;
+
+    private volatile String mode = "single";
+    private volatile int variants = 1;
+
+    private RunStats(Path jfrFile) throws IOException, ParseException {
+        com.sun.management.ThreadMXBean alloc = (threads instanceof com.sun.management.ThreadMXBean t
+                && t.isThreadAllocatedMemorySupported()) ? t : null;
+        if (alloc != null && !alloc.isThreadAllocatedMemoryEnabled()) alloc.setThreadAllocatedMemoryEnabled(true);
+        this.allocations = alloc;
+
+        this.cpuSupported = threads.isCurrentThreadCpuTimeSupported();
+        if (cpuSupported && !threads.isThreadCpuTimeEnabled()) threads.setThreadCpuTimeEnabled(true);
+
+        this.startProcessCpu = processCpuNanos();
+        this.startGcCount = gcCount();
+        this.startGcMillis = gcMillis();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+
+        this.jfrFile = jfrFile;
+        if (jfrFile != null) {
+            recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("td-tool");
+            recording.enable(PhaseEvent.class);
+            recording.start();
+        } else {
+            recording = null;
+        }
+    }
+
+    /** Installs the instance used by {@link #span} for this run. */
+    static RunStats install(Path jfrFile) throws IOException, ParseException {
+        RunStats stats = new RunStats(jfrFile);
+        current = stats;
+        return stats;
+    }
+
+    static void uninstall() {
+        current = null;
+    }
+
+    /** Measures a phase on the calling thread (wall time, CPU time, allocations). */
+    static Span span(Phase phase) {
+        RunStats s = current;
+        return (s == null) ? NOOP : s.start(phase, true);
+    }
+
+    /** Measures CPU time and allocations of a pool thread working for a phase measured elsewhere. */
+    static Span workerSpan(Phase phase) {
+        RunStats s = current;
+        return (s == null) ? NOOP : s.start(phase, false);
+    }
+
+    void mode(String mode) {
+        this.mode = mode;
+        if ("list".equals(mode)) variants = 0;
+    }
+
+    /** Number of variants generated by the current run (batch mode). */
+    static void variants(int n) {
+        RunStats s = current;
+        if (s != null) s.variants = n;
+    }
+
+    private Span start(Phase phase, boolean timed) {
+        final long w0 = System.nanoTime();
+        final long c0 = threadCpuNanos();
+        final long a0 = threadAllocatedBytes();
+
+        final PhaseEvent event = (recording != null) ? new PhaseEvent() : null;
+        if (event != null) event.begin();
+
+        return () -> {
+            long dc = threadCpuNanos() - c0;
+            long da = threadAllocatedBytes() - a0;
+            int i = phase.ordinal();
+
+            if (timed) {
+                counts[i].increment();
+                wall[i].add(System.nanoTime() - w0);
+            }
+            cpu[i].add(dc);
+            allocated[i].add(da);
+
+            if (event != null) {
+                event.end();
+                event.phase = phase.name().toLowerCase(Locale.ROOT);
+                event.cpuTime = dc;
+                event.allocated = da;
+                event.commit();
+            }
+        };
+    }
+
+    /**
+     * Stops the JFR recording (if any) and writes the JSON summary to {@code jsonFile}
+     * (if not null). A one-line pointer to each file is printed on {@code log}.
+     */
+    void finish(Path jsonFile, PrintStream log) throws IOException {
+        long wallNanos = System.nanoTime() - startNanos;
+
+        if (recording != null) {
+            recording.stop();
+            recording.dump(jfrFile);
+            recording.close();
+            log.println("JFR recording: " + jfrFile);
+        }
+
+        if (jsonFile != null) {
+            if (jsonFile.getParent() != null) Files.createDirectories(jsonFile.getParent());
+            Files.writeString(jsonFile, toJson(wallNanos), StandardCharsets.UTF_8);
+            log.println("Run stats: " + jsonFile);
+        }
+    }
+
+    String toJson(long wallNanos) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\n");
+        sb.append("  \"tool\": \"td-tool\",\n");
+        sb.append("  \"mode\": \"").append(mode).append("\",\n");
+        sb.append("  \"variants\": ").append(variants).append(",\n");
+        sb.append("  \"wallMillis\": ").append(millis(wallNanos)).append(",\n");
+        sb.append("  \"processCpuMillis\": ").append(millis(processCpuNanos() - startProcessCpu)).append(",\n");
+        sb.append("  \"gcCount\": ").append(gcCount() - startGcCount).append(",\n");
+        sb.append("  \"gcMillis\": ").append(gcMillis() - startGcMillis).append(",\n");
+        sb.append("  \"peakHeapBytes\": ").append(peakHeapBytes()).append(",\n");
+        sb.append("  \"allocationsMeasured\": ").append(allocations != null).append(",\n");
+        sb.append("  \"phases\": {\n");
+
+        Phase[] phases = Phase.values();
+        for (int i = 0; i < phases.length; i++) {
+            sb.append("    \"").append(phases[i].name().toLowerCase(Locale.ROOT)).append("\": {")
+                    .append("\"count\": ").append(counts[i].sum())
+                    .append(", \"wallMillis\": ").append(millis(wall[i].sum()))
+                    .append(", \"cpuMillis\": ").append(millis(cpu[i].sum()))
+                    .append(", \"allocatedBytes\": ").append(allocated[i].sum())
+                    .append(i + 1 < phases.length ? "},\n" : "}\n");
+        }
+
+        sb.append("  }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private long threadCpuNanos() {
+        if (!cpuSupported) return 0L;
+        long t = threads.getCurrentThreadCpuTime();
+        return (t < 0) ? 0L : t;
+    }
+
+    private long threadAllocatedBytes() {
+        if (allocations == null) return 0L;
+        long b = allocations.getCurrentThreadAllocatedBytes();
+        return (b < 0) ? 0L : b;
+    }
+
+    private static long processCpuNanos() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return Math.max(0L, os.getProcessCpuTime());
+        }
+        return 0L;
+    }
+
+    private static long gcCount() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            n += Math.max(0L, gc.getCollectionCount());
+        }
+        return n;
+    }
+
+    private static long gcMillis() {
+        long ms = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ms += Math.max(0L, gc.getCollectionTime());
+        }
+        return ms;
+    }
+
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] a = new LongAdder[Phase.values().length];
+        for (int i = 0; i < a.length; i++) a[i] = new LongAdder();
+        return a;
+    }
+}
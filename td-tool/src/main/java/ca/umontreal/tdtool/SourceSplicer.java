@@ -0,0 +1,197 @@
+package ca.umontreal.tdtool;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.Statement;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Rewrite mode "splice": the cut method bodies are replaced inside the bytes of the original
+ * file, and everything else (comments, formatting, blank lines, encoding) stays byte-identical.
+ * The tree only locates the bodies and is never modified, so batch variants need no clone.
+ * The output is assembled from slices of the original buffer and stub text, and written with
+ * one gathering FileChannel write.
+ *
+ * A full cut becomes {@code { throw new UnsupportedOperationException("TODO"); }}; a partial
+ * cut keeps the original text of its first statements (same rule as the printed mode).
+ * Indentation and line separator are taken from the surrounding lines.
+ */
+final class SourceSplicer {
+
+    private static final byte[] THROW_TODO =
+            "throw new UnsupportedOperationException(\"TODO\");".getBytes(StandardCharsets.UTF_8);
+
+    private SourceSplicer() {}
+
+    /** Replaces the bytes [start, end) of the original file. */
+    private record Edit(int start, int end, byte[] replacement) {}
+
+    /**
+     * Writes the file with its cuts spliced in. Returns false, without writing anything, when
+     * the cuts cannot be spliced (a cut method nested in another one, or a body whose position
+     * does not match the file); the caller then pretty-prints the file instead.
+     */
+    static boolean write(Main.ParsedSource source, List<Main.ChosenCut> cuts, Path target) throws IOException {
+        List<Edit> edits = new ArrayList<>(cuts.size());
+        byte[] content;
+
+        try (RunStats.Span span = RunStats.span(RunStats.Phase.CUT)) {
+            content = source.content();
+            int[] lineStarts = lineStarts(content);
+
+            for (Main.ChosenCut cc : cuts) {
+                MethodDeclaration md = cc.method.declaration();
+                if (md.getBody().isEmpty()) continue;
+
+                Edit edit = edit(content, lineStarts, md, md.getBody().get(), cc);
+                if (edit == null) return false;
+                edits.add(edit);
+            }
+
+            edits.sort(Comparator.comparingInt(Edit::start));
+            for (int i = 1; i < edits.size(); i++) {
+                if (edits.get(i).start() < edits.get(i - 1).end()) return false;
+            }
+        }
+
+        try (RunStats.Span span = RunStats.span(RunStats.Phase.WRITE)) {
+            List<ByteBuffer> parts = new ArrayList<>(2 * edits.size() + 1);
+            int pos = 0;
+            for (Edit e : edits) {
+                parts.add(ByteBuffer.wrap(content, pos, e.start() - pos));
+                parts.add(ByteBuffer.wrap(e.replacement()));
+                pos = e.end();
+            }
+            parts.add(ByteBuffer.wrap(content, pos, content.length - pos));
+
+            ByteBuffer[] buffers = parts.toArray(new ByteBuffer[0]);
+            long remaining = 0;
+            for (ByteBuffer b : buffers) remaining += b.remaining();
+
+            Files.createDirectories(target.getParent());
+            try (FileChannel ch = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                // one call in practice; the loop only covers a short write
+                while (remaining > 0) {
+                    remaining -= ch.write(buffers);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static Edit edit(byte[] content, int[] lineStarts, MethodDeclaration md, BlockStmt body,
+                             Main.ChosenCut cc) {
+        int start = offset(content, lineStarts, body.getBegin().orElse(null));
+        int close = offset(content, lineStarts, body.getEnd().orElse(null));
+        if (start < 0 || close < 0 || content[start] != '{' || content[close] != '}') return null;
+
+        byte[] eol = lineSeparator(content, start);
+        byte[] indent = leadingWhitespace(content, lineStarts, md.getBegin().map(p -> p.line).orElse(0));
+
+        List<Statement> statements = body.getStatements();
+        byte[] inner;
+        int firstLine = statements.isEmpty() ? 0 : statements.get(0).getBegin().map(p -> p.line).orElse(0);
+        if (firstLine > body.getBegin().get().line) {
+            inner = leadingWhitespace(content, lineStarts, firstLine);
+        } else {
+            boolean tabs = indent.length > 0 && indent[indent.length - 1] == '\t';
+            inner = concat(indent, (tabs ? "\t" : "    ").getBytes(StandardCharsets.US_ASCII));
+        }
+
+        // partial cut: original text up to the last kept statement, as in Main.partialStubBody
+        int keptEnd = start + 1;
+        if (cc.level == Main.CutLevel.PARTIAL) {
+            int kept = 0;
+            for (Statement st : statements) {
+                if (kept >= cc.keepStatements || Main.isTerminalStatement(st)) break;
+                int end = offset(content, lineStarts, st.getEnd().orElse(null));
+                if (end < 0 || (content[end] != ';' && content[end] != '}')) return null;
+                keptEnd = end + 1;
+                kept++;
+            }
+        }
+
+        byte[] replacement = concat(
+                slice(content, start, keptEnd), eol,
+                inner, THROW_TODO, eol,
+                indent, new byte[] {'}'});
+        return new Edit(start, close + 1, replacement);
+    }
+
+    /** Byte offset of each line: after "\n", "\r\n" or a lone "\r", as JavaParser counts lines. */
+    private static int[] lineStarts(byte[] content) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n' || (content[i] == '\r' && (i + 1 == content.length || content[i + 1] != '\n'))) {
+                starts.add(i + 1);
+            }
+        }
+        return starts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Byte offset of a JavaParser position (1-based line, 1-based column counted in chars),
+     * or -1 if it is outside the file.
+     */
+    private static int offset(byte[] content, int[] lineStarts, Position p) {
+        if (p == null || p.line < 1 || p.line > lineStarts.length || p.column < 1) return -1;
+
+        int lineStart = lineStarts[p.line - 1];
+        int lineEnd = (p.line < lineStarts.length) ? lineStarts[p.line] : content.length;
+        String line = new String(content, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+        if (p.column > line.length()) return -1;
+
+        int offset = lineStart + line.substring(0, p.column - 1).getBytes(StandardCharsets.UTF_8).length;
+        return (offset < content.length) ? offset : -1;
+    }
+
+    /** Line separator ending the line of {@code from}; the platform one on the last line. */
+    private static byte[] lineSeparator(byte[] content, int from) {
+        for (int i = from; i < content.length; i++) {
+            if (content[i] == '\n') return new byte[] {'\n'};
+            if (content[i] == '\r') {
+                return (i + 1 < content.length && content[i + 1] == '\n') ? new byte[] {'\r', '\n'} : new byte[] {'\r'};
+            }
+        }
+        return System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] leadingWhitespace(byte[] content, int[] lineStarts, int line) {
+        if (line < 1 || line > lineStarts.length) return new byte[0];
+        int start = lineStarts[line - 1];
+        int end = start;
+        while (end < content.length && (content[end] == ' ' || content[end] == '\t')) end++;
+        return slice(content, start, end);
+    }
+
+    private static byte[] slice(byte[] content, int start, int end) {
+        byte[] out = new byte[end - start];
+        System.arraycopy(content, start, out, 0, out.length);
+        return out;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] p : parts) length += p.length;
+        byte[] out = new byte[length];
+        int pos = 0;
+        for (byte[] p : parts) {
+            System.arraycopy(p, 0, out, pos, p.length);
+            pos += p.length;
+        }
+        return out;
+    }
+}
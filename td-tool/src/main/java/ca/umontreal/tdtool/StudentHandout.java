@@ -1,21 +1,31 @@
 package ca.umontreal.tdtool;
 
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDFormContentStream;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.util.Matrix;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Génère un énoncé étudiant (FR) au format TXT et/ou PDF, contenant les consignes
@@ -27,6 +37,14 @@ public final class StudentHandout {
 
     private StudentHandout() {}
 
+    // Mise en page PDF (US Letter)
+    private static final float FONT_SIZE = 11f;
+    private static final float TITLE_SIZE = 14f;
+    private static final float MARGIN = 54f;
+    private static final float LEADING_NORMAL = 1.35f * FONT_SIZE;
+    private static final float LEADING_TITLE = 1.35f * TITLE_SIZE;
+    private static final float TEXT_WIDTH = PDRectangle.LETTER.getWidth() - 2 * MARGIN;
+
     /** Représente une méthode rendue incomplète (stub). */
     public static class StubbedMethod {
         public String id;                 // ex: ca.umontreal.library.Library#addBook(Book)
@@ -46,6 +64,7 @@ public final class StudentHandout {
      * Génère l'énoncé étudiant dans le répertoire du projet "exercice".
      * - TXT et/ou PDF selon cfg.generateStudentTxt / cfg.generateStudentPdf
      * - Nom de base: cfg.studentHandoutBaseName (défaut: "ENONCE_TD")
+     * - Polices PDF réutilisées d'un document à l'autre sauf si cfg.pdfSharedFonts = false
      *
      * Si cfg est null, génère TXT + PDF avec base "ENONCE_TD".
      */
@@ -58,33 +77,64 @@ public final class StudentHandout {
         boolean genTxt = true;
         boolean genPdf = true;
         String baseName = "ENONCE_TD";
+        boolean shareFonts = true;
+        boolean useTemplate = true;
 
         if (cfg != null) {
             if (cfg.generateStudentTxt != null) genTxt = cfg.generateStudentTxt;
             if (cfg.generateStudentPdf != null) genPdf = cfg.generateStudentPdf;
+            if (cfg.pdfSharedFonts != null) shareFonts = cfg.pdfSharedFonts;
+            if (cfg.pdfTemplate != null) useTemplate = cfg.pdfTemplate;
             if (cfg.studentHandoutBaseName != null && !cfg.studentHandoutBaseName.isBlank()) {
                 baseName = cfg.studentHandoutBaseName.trim();
             }
         }
 
-        List<String> lines = buildFrenchHandoutLines(methods);
+        List<String> header = headerLines(LocalDate.now());
+        List<String> items = methodLines(methods);
+        List<String> footer = footerLines();
 
         if (genTxt) {
-            Path txt = outputProjectRoot.resolve(baseName + ".txt");
-            Files.write(txt, lines, StandardCharsets.UTF_8);
+            try (RunStats.Span span = RunStats.span(RunStats.Phase.TXT)) {
+                List<String> lines = new ArrayList<>(header.size() + items.size() + footer.size());
+                lines.addAll(header);
+                lines.addAll(items);
+                lines.addAll(footer);
+
+                Path txt = outputProjectRoot.resolve(baseName + ".txt");
+                Files.write(txt, lines, StandardCharsets.UTF_8);
+            }
         }
 
         if (genPdf) {
-            Path pdf = outputProjectRoot.resolve(baseName + ".pdf");
-            writePdf(pdf, lines);
+            try (RunStats.Span span = RunStats.span(RunStats.Phase.PDF)) {
+                writeHandoutPdf(outputProjectRoot.resolve(baseName + ".pdf"), header, items, footer,
+                        shareFonts, useTemplate);
+            }
+        }
+    }
+
+    private static void writeHandoutPdf(Path pdf, List<String> header, List<String> items, List<String> footer,
+                                        boolean shareFonts, boolean useTemplate) throws IOException {
+        PdfFonts fonts = shareFonts ? sharedFonts() : new PdfFonts();
+        PdfTemplate t = useTemplate ? PdfTemplate.of(header, footer) : null;
+
+        if (t != null && t.headerFits) {
+            writePdf(pdf, t, items, fonts);
+        } else {
+            List<String> lines = new ArrayList<>(header);
+            lines.addAll(items);
+            lines.addAll(footer);
+            writePdf(pdf, lines, fonts);
         }
     }
 
-    private static List<String> buildFrenchHandoutLines(List<StubbedMethod> methods) {
+    /** Partie fixe du début de l'énoncé (titre, consignes), jusqu'au titre de la liste des méthodes. */
+    private static List<String> headerLines(LocalDate date) {
         List<String> lines = new ArrayList<>();
 
         lines.add("TRAVAIL DIRIGÉ (TD) — Tests unitaires & ré-implémentation");
-        lines.add("Date : " + LocalDate.now());
+        lines.add("Date : " + date);
         lines.add("");
 
         lines.add("Objectif");
@@ -110,6 +160,14 @@ public final class StudentHandout {
 
         lines.add("Méthodes à compléter");
         lines.add("--------------------");
+
+        return lines;
+    }
+
+    /** Partie propre à chaque variante : une ligne par méthode rendue incomplète. */
+    private static List<String> methodLines(List<StubbedMethod> methods) {
+        List<String> lines = new ArrayList<>();
+
         if (methods == null || methods.isEmpty()) {
             lines.add("(Aucune méthode listée)");
         } else {
@@ -117,6 +175,14 @@ public final class StudentHandout {
                 lines.add(formatMethodLine(m));
             }
         }
+
+        return lines;
+    }
+
+    /** Partie fixe de la fin de l'énoncé. */
+    private static List<String> footerLines() {
+        List<String> lines = new ArrayList<>();
+
         lines.add("");
 
         lines.add("Rendu attendu");
@@ -138,71 +204,304 @@ public final class StudentHandout {
         return "- " + id + "  (coupure : totale)";
     }
 
-    private static void writePdf(Path pdfPath, List<String> logicalLines) throws IOException {
-        if (logicalLines == null) logicalLines = List.of();
+    /**
+     * Polices du PDF et leurs métriques.
+     *
+     * Les largeurs de glyphes sont mémorisées par police (en unités de police, 1/1000 em),
+     * donc une même instance sert toutes les tailles. Une instance n'est pas thread-safe :
+     * PDFBox garde lui-même des caches non synchronisés dans PDType1Font.
+     */
+    static final class PdfFonts {
+        final PDFont regular = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        final PDFont bold = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
 
-        final PDFont font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
-        final PDFont fontBold = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
+        final FontMetrics regularMetrics = new FontMetrics(regular);
+        final FontMetrics boldMetrics = new FontMetrics(bold);
+    }
 
-        final float fontSize = 11f;
-        final float titleSize = 14f;
+    // Polices partagées entre tous les documents générés par un même thread (mode batch)
+    private static final ThreadLocal<PdfFonts> SHARED_FONTS = ThreadLocal.withInitial(PdfFonts::new);
 
-        final float margin = 54f;
-        final float leadingNormal = 1.35f * fontSize;
-        final float leadingTitle = 1.35f * titleSize;
+    static PdfFonts sharedFonts() {
+        return SHARED_FONTS.get();
+    }
 
-        try (PDDocument doc = new PDDocument()) {
-            PDPage page = new PDPage(PDRectangle.LETTER);
-            doc.addPage(page);
+    /** Cache des largeurs de glyphes d'une police, indexé par point de code. */
+    static final class FontMetrics {
+        private final PDFont font;
+        private final float[] latin = new float[256];
+        private final Map<Integer, Float> others = new HashMap<>();
 
-            PDRectangle media = page.getMediaBox();
-            float pageWidth = media.getWidth();
-            float pageHeight = media.getHeight();
+        FontMetrics(PDFont font) {
+            this.font = font;
+            Arrays.fill(latin, Float.NaN);
+        }
 
-            float y = pageHeight - margin;
+        /** Largeur d'un caractère, en unités de police. */
+        float width(int codePoint) throws IOException {
+            if (codePoint < latin.length) {
+                float w = latin[codePoint];
+                if (Float.isNaN(w)) {
+                    w = font.getStringWidth(Character.toString(codePoint));
+                    latin[codePoint] = w;
+                }
+                return w;
+            }
+            Float w = others.get(codePoint);
+            if (w == null) {
+                w = font.getStringWidth(Character.toString(codePoint));
+                others.put(codePoint, w);
+            }
+            return w;
+        }
 
-            PDPageContentStream cs = new PDPageContentStream(doc, page);
-            try {
-                for (int i = 0; i < logicalLines.size(); i++) {
-                    String raw = logicalLines.get(i);
-                    String safe = safePdfText(raw);
+        /** Largeur d'une chaîne, en unités de police (somme des glyphes, pas de crénage). */
+        float width(String s) throws IOException {
+            float w = 0f;
+            for (int i = 0; i < s.length(); ) {
+                int cp = s.codePointAt(i);
+                w += width(cp);
+                i += Character.charCount(cp);
+            }
+            return w;
+        }
+    }
+
+    static void writePdf(Path pdfPath, List<String> logicalLines) throws IOException {
+        writePdf(pdfPath, logicalLines, new PdfFonts());
+    }
 
+    static void writePdf(Path pdfPath, List<String> logicalLines, PdfFonts fonts) throws IOException {
+        if (logicalLines == null) logicalLines = List.of();
+
+        try (PDDocument doc = new PDDocument()) {
+            try (PageWriter out = new PageWriter(doc)) {
+                for (int i = 0; i < logicalLines.size(); i++) {
                     boolean isTitle = (i == 0);
-                    PDFont currentFont = isTitle ? fontBold : font;
-                    float currentSize = isTitle ? titleSize : fontSize;
-                    float currentLeading = isTitle ? leadingTitle : leadingNormal;
+                    out.line(logicalLines.get(i),
+                            isTitle ? fonts.bold : fonts.regular,
+                            isTitle ? fonts.boldMetrics : fonts.regularMetrics,
+                            isTitle ? TITLE_SIZE : FONT_SIZE,
+                            isTitle ? LEADING_TITLE : LEADING_NORMAL);
+                }
+            }
+            doc.save(pdfPath.toFile());
+        }
+    }
+
+    /**
+     * Écrit un énoncé à partir d'un gabarit : l'en-tête et le pied de page sont dessinés
+     * depuis le contenu pré-calculé, seules les lignes des méthodes sont mises en page ici.
+     * Le rendu est le même que celui de {@link #writePdf(Path, List, PdfFonts)}.
+     */
+    static void writePdf(Path pdfPath, PdfTemplate template, List<String> items, PdfFonts fonts) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            PDResources resources = PdfTemplate.resources(fonts);
+
+            try (PageWriter out = new PageWriter(doc)) {
+                out.form(template.headerForm(doc, resources), 0f);
+                out.y = template.headerBottom;
+
+                for (String item : items) {
+                    out.line(item, fonts.regular, fonts.regularMetrics, FONT_SIZE, LEADING_NORMAL);
+                }
+
+                if (out.fits(template.footerLineCount, LEADING_NORMAL)) {
+                    out.form(template.footerForm(doc, resources), out.y - template.footerHeight);
+                    out.y -= template.footerHeight;
+                } else {
+                    for (String line : template.footerLines) {
+                        out.line(line, fonts.regular, fonts.regularMetrics, FONT_SIZE, LEADING_NORMAL);
+                    }
+                }
+            }
+            doc.save(pdfPath.toFile());
+        }
+    }
 
-                    List<String> wrapped = wrapLine(safe, currentFont, currentSize, pageWidth - 2 * margin);
+    /** Écriture ligne à ligne (avec retour à la ligne et saut de page automatiques). */
+    private static final class PageWriter implements Closeable {
+        private final PDDocument doc;
+        private PDPageContentStream cs;
+        float y;
 
-                    for (String line : wrapped) {
-                        if (y - currentLeading < margin) {
-                            cs.close();
+        PageWriter(PDDocument doc) throws IOException {
+            this.doc = doc;
+            newPage();
+        }
 
-                            page = new PDPage(PDRectangle.LETTER);
-                            doc.addPage(page);
+        private void newPage() throws IOException {
+            if (cs != null) cs.close();
 
-                            media = page.getMediaBox();
-                            pageWidth = media.getWidth();
-                            pageHeight = media.getHeight();
-                            y = pageHeight - margin;
+            PDPage page = new PDPage(PDRectangle.LETTER);
+            doc.addPage(page);
+            y = page.getMediaBox().getHeight() - MARGIN;
 
-                            cs = new PDPageContentStream(doc, page);
-                        }
+            cs = new PDPageContentStream(doc, page);
+        }
+
+        /** Vrai si n lignes tiennent encore sur la page courante. */
+        boolean fits(int n, float leading) {
+            float yy = y;
+            for (int i = 0; i < n; i++) {
+                if (yy - leading < MARGIN) return false;
+                yy -= leading;
+            }
+            return true;
+        }
 
-                        cs.beginText();
-                        cs.setFont(currentFont, currentSize);
-                        cs.newLineAtOffset(margin, y);
-                        cs.showText(line);
-                        cs.endText();
+        void line(String raw, PDFont font, FontMetrics metrics, float size, float leading) throws IOException {
+            for (String line : wrapLine(safePdfText(raw), metrics, size, TEXT_WIDTH)) {
+                if (y - leading < MARGIN) newPage();
 
-                        y -= currentLeading;
+                cs.beginText();
+                cs.setFont(font, size);
+                cs.newLineAtOffset(MARGIN, y);
+                cs.showText(line);
+                cs.endText();
+
+                y -= leading;
+            }
+        }
+
+        void form(PDFormXObject form, float translateY) throws IOException {
+            cs.saveGraphicsState();
+            if (translateY != 0f) cs.transform(Matrix.getTranslateInstance(0f, translateY));
+            cs.drawForm(form);
+            cs.restoreGraphicsState();
+        }
+
+        @Override
+        public void close() throws IOException {
+            cs.close();
+        }
+    }
+
+    /**
+     * Gabarit PDF : contenu pré-calculé de l'en-tête et du pied de page.
+     *
+     * Le contenu (opérateurs PDF) ne dépend d'aucun document : il est calculé une fois,
+     * puis recopié dans un XObject de formulaire pour chaque énoncé. Les polices y sont
+     * référencées par des noms fixes (F1, F2), liés aux polices du document à l'écriture.
+     */
+    static final class PdfTemplate {
+        private static final COSName REGULAR = COSName.getPDFName("F1");
+        private static final COSName BOLD = COSName.getPDFName("F2");
+
+        // Dernier gabarit construit : l'en-tête ne change qu'avec la date
+        private static volatile PdfTemplate last;
+
+        final List<String> headerLines;
+        final List<String> footerLines;
+
+        // false si l'en-tête déborde de la première page (mise en page classique)
+        final boolean headerFits;
+        final float headerBottom;
+        private final byte[] headerContent;
+
+        final int footerLineCount;
+        final float footerHeight;
+        private final byte[] footerContent;
+
+        private PdfTemplate(List<String> headerLines, List<String> footerLines) throws IOException {
+            this.headerLines = List.copyOf(headerLines);
+            this.footerLines = List.copyOf(footerLines);
+
+            // polices dédiées : le gabarit peut être construit par n'importe quel thread
+            PdfFonts fonts = new PdfFonts();
+            PDRectangle media = PDRectangle.LETTER;
+
+            try (PDDocument scratch = new PDDocument()) {
+                // En-tête : coordonnées de la page, comme la mise en page classique
+                PDFormXObject header = new PDFormXObject(scratch);
+                header.setResources(resources(fonts));
+                float y = media.getHeight() - MARGIN;
+                boolean fits = true;
+                try (PDFormContentStream cs = new PDFormContentStream(header)) {
+                    for (int i = 0; i < this.headerLines.size() && fits; i++) {
+                        boolean isTitle = (i == 0);
+                        PDFont font = isTitle ? fonts.bold : fonts.regular;
+                        float size = isTitle ? TITLE_SIZE : FONT_SIZE;
+                        float leading = isTitle ? LEADING_TITLE : LEADING_NORMAL;
+
+                        for (String line : wrapLine(safePdfText(this.headerLines.get(i)),
+                                isTitle ? fonts.boldMetrics : fonts.regularMetrics, size, TEXT_WIDTH)) {
+                            if (y - leading < MARGIN) {
+                                fits = false;
+                                break;
+                            }
+                            showText(cs, font, size, y, line);
+                            y -= leading;
+                        }
                     }
                 }
-            } finally {
-                cs.close();
+                this.headerFits = fits;
+                this.headerBottom = y;
+                this.headerContent = header.getContentStream().toByteArray();
+
+                // Pied de page : la ligne j est dessinée à (n - j) * interligne, puis translatée
+                List<String> wrapped = new ArrayList<>();
+                for (String line : this.footerLines) {
+                    wrapped.addAll(wrapLine(safePdfText(line), fonts.regularMetrics, FONT_SIZE, TEXT_WIDTH));
+                }
+                PDFormXObject footer = new PDFormXObject(scratch);
+                footer.setResources(resources(fonts));
+                try (PDFormContentStream cs = new PDFormContentStream(footer)) {
+                    for (int j = 0; j < wrapped.size(); j++) {
+                        showText(cs, fonts.regular, FONT_SIZE, (wrapped.size() - j) * LEADING_NORMAL, wrapped.get(j));
+                    }
+                }
+                this.footerLineCount = wrapped.size();
+                this.footerHeight = wrapped.size() * LEADING_NORMAL;
+                this.footerContent = footer.getContentStream().toByteArray();
             }
+        }
 
-            doc.save(pdfPath.toFile());
+        /** Gabarit pour cet en-tête et ce pied de page (réutilise le précédent s'ils sont identiques). */
+        static PdfTemplate of(List<String> headerLines, List<String> footerLines) throws IOException {
+            PdfTemplate t = last;
+            if (t == null || !t.headerLines.equals(headerLines) || !t.footerLines.equals(footerLines)) {
+                t = new PdfTemplate(headerLines, footerLines);
+                last = t;
+            }
+            return t;
+        }
+
+        static PDResources resources(PdfFonts fonts) {
+            PDResources resources = new PDResources();
+            resources.put(REGULAR, fonts.regular);
+            resources.put(BOLD, fonts.bold);
+            return resources;
+        }
+
+        PDFormXObject headerForm(PDDocument doc, PDResources resources) throws IOException {
+            return form(doc, resources, headerContent, PDRectangle.LETTER);
+        }
+
+        PDFormXObject footerForm(PDDocument doc, PDResources resources) throws IOException {
+            return form(doc, resources, footerContent,
+                    new PDRectangle(0f, 0f, PDRectangle.LETTER.getWidth(), footerHeight + LEADING_NORMAL));
+        }
+
+        private static PDFormXObject form(PDDocument doc, PDResources resources, byte[] content,
+                                          PDRectangle bbox) throws IOException {
+            PDFormXObject form = new PDFormXObject(doc);
+            try (OutputStream os = form.getContentStream().createOutputStream(COSName.FLATE_DECODE)) {
+                os.write(content);
+            }
+            form.setBBox(bbox);
+            form.setResources(resources);
+            return form;
+        }
+
+        private static void showText(PDFormContentStream cs, PDFont font, float size, float y, String line)
+                throws IOException {
+            if (line.isEmpty()) return;
+            cs.beginText();
+            cs.setFont(font, size);
+            cs.newLineAtOffset(MARGIN, y);
+            cs.showText(line);
+            cs.endText();
         }
     }
 
@@ -213,37 +512,48 @@ public final class StudentHandout {
                 .replace("\u0000", "");
     }
 
-    private static List<String> wrapLine(String line, PDFont font, float fontSize, float maxWidth) throws IOException {
+    /**
+     * Découpe une ligne en lignes d'au plus maxWidth points (retour à la ligne glouton sur les espaces).
+     * Les largeurs sont cumulées au fil des mots : chaque mot n'est mesuré qu'une fois.
+     */
+    static List<String> wrapLine(String line, FontMetrics metrics, float fontSize, float maxWidth) throws IOException {
         if (line == null) return List.of("");
         if (line.isEmpty()) return List.of("");
 
+        // limite en unités de police : les largeurs cumulées restent des entiers exacts
+        final float maxUnits = maxWidth * 1000f / fontSize;
+        final float spaceUnits = metrics.width(' ');
+
         String[] words = line.split("\\s+");
         List<String> out = new ArrayList<>();
         StringBuilder current = new StringBuilder();
+        float currentUnits = 0f;
 
         for (String w : words) {
             if (w.isEmpty()) continue;
 
-            if (stringWidth(font, fontSize, w) > maxWidth) {
+            float wordUnits = metrics.width(w);
+            if (wordUnits > maxUnits) {
                 if (current.length() > 0) {
                     out.add(current.toString());
                     current.setLength(0);
+                    currentUnits = 0f;
                 }
-                out.addAll(breakLongToken(w, font, fontSize, maxWidth));
+                out.addAll(breakLongToken(w, metrics, maxUnits));
                 continue;
             }
 
             if (current.length() == 0) {
                 current.append(w);
+                currentUnits = wordUnits;
+            } else if (currentUnits + spaceUnits + wordUnits <= maxUnits) {
+                current.append(' ').append(w);
+                currentUnits += spaceUnits + wordUnits;
             } else {
-                String candidate = current + " " + w;
-                if (stringWidth(font, fontSize, candidate) <= maxWidth) {
-                    current.append(" ").append(w);
-                } else {
-                    out.add(current.toString());
-                    current.setLength(0);
-                    current.append(w);
-                }
+                out.add(current.toString());
+                current.setLength(0);
+                current.append(w);
+                currentUnits = wordUnits;
             }
         }
 
@@ -251,7 +561,7 @@ public final class StudentHandout {
         return out;
     }
 
-    private static List<String> breakLongToken(String token, PDFont font, float fontSize, float maxWidth) throws IOException {
+    private static List<String> breakLongToken(String token, FontMetrics metrics, float maxUnits) throws IOException {
         List<String> parts = new ArrayList<>();
         if (token == null || token.isEmpty()) {
             parts.add("");
@@ -259,28 +569,28 @@ public final class StudentHandout {
         }
 
         StringBuilder chunk = new StringBuilder();
-        for (int i = 0; i < token.length(); i++) {
-            char c = token.charAt(i);
-            chunk.append(c);
-
-            if (stringWidth(font, fontSize, chunk.toString()) > maxWidth) {
-                chunk.setLength(Math.max(0, chunk.length() - 1));
+        float chunkUnits = 0f;
+        for (int i = 0; i < token.length(); ) {
+            int cp = token.codePointAt(i);
+            i += Character.charCount(cp);
+            float cpUnits = metrics.width(cp);
 
+            if (chunkUnits + cpUnits > maxUnits) {
                 if (chunk.length() == 0) {
-                    parts.add(String.valueOf(c));
+                    parts.add(Character.toString(cp));
                 } else {
                     parts.add(chunk.toString());
                     chunk.setLength(0);
-                    chunk.append(c);
+                    chunk.appendCodePoint(cp);
+                    chunkUnits = cpUnits;
                 }
+            } else {
+                chunk.appendCodePoint(cp);
+                chunkUnits += cpUnits;
             }
         }
 
         if (chunk.length() > 0) parts.add(chunk.toString());
         return parts;
     }
-
-    private static float stringWidth(PDFont font, float fontSize, String s) throws IOException {
-        return (font.getStringWidth(s) / 1000f) * fontSize;
-    }
 }
@@ -0,0 +1,114 @@
+package ca.umontreal.tdtool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExerciseManifestTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void replayingTheManifestRegeneratesTheSameExercise() throws Exception {
+        Path ref = referenceProject();
+        Path first = tmp.resolve("first");
+        Path replay = tmp.resolve("replay");
+
+        Main.run(new String[] {"--input", ref.toString(), "--output", first.toString(),
+                "--mode", "any", "--random", "3", "--seed", "42", "--rewrite", "splice"}, null, noPdf());
+        Path manifest = first.resolve(ExerciseManifest.FILE_NAME);
+        assertTrue(Files.readString(manifest).contains("rewriteMode: splice"));
+
+        Main.run(new String[] {"--config", manifest.toString(), "--output", replay.toString()}, null, null);
+
+        Map<String, String> expected = tree(first);
+        Map<String, String> actual = tree(replay);
+        assertNotEquals(tree(ref), expected, "the seed must cut something");
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void replayingAgainstEditedSourcesReportsTheHashMismatch() throws Exception {
+        Path ref = referenceProject();
+        Path first = tmp.resolve("first");
+        Path replay = tmp.resolve("replay");
+
+        Main.run(new String[] {"--input", ref.toString(), "--output", first.toString(),
+                "--mode", "any", "--random", "2", "--seed", "7"}, null, noPdf());
+
+        Path source = ref.resolve("src/main/java/p/Gamma.java");
+        Files.writeString(source, Files.readString(source).replace("x*2", "x*3"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> Main.run(
+                new String[] {"--config", first.resolve(ExerciseManifest.FILE_NAME).toString(),
+                        "--output", replay.toString()}, null, null));
+        assertTrue(e.getMessage().contains("inputHash"), e.getMessage());
+        assertTrue(Files.notExists(replay), "nothing must be generated");
+    }
+
+    private Config noPdf() {
+        Config cfg = new Config();
+        cfg.generateStudentPdf = false;
+        return cfg;
+    }
+
+    /**
+     * Comments and formatting that the printed mode would reformat, so that replaying with the
+     * wrong rewrite mode gives different sources.
+     */
+    private Path referenceProject() throws IOException {
+        Path ref = tmp.resolve("ref");
+        Path pkg = Files.createDirectories(ref.resolve("src/main/java/p"));
+        Files.writeString(ref.resolve("pom.xml"), "<project/>\n");
+        for (String name : new String[] {"Alpha", "Beta", "Gamma"}) {
+            Files.writeString(pkg.resolve(name + ".java"), """
+                    package p;
+
+                    public class %s {
+
+                        private int total;   // running total
+
+                        public int add(int x) {
+                            total   +=   x;   // aligned on purpose
+                            return total;
+                        }
+
+                        public int twice(int x) {
+                            int y = x*2;
+                            return y;
+                        }
+
+                        /* block comment kept verbatim */
+                        public String label() { return "%s" + total; }
+                    }
+                    """.formatted(name, name));
+        }
+        return ref;
+    }
+
+    /** Relative path to content of every file, without the manifest (its output path differs). */
+    private static Map<String, String> tree(Path root) throws IOException {
+        Map<String, String> files = new TreeMap<>();
+        try (Stream<Path> s = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) s.filter(Files::isRegularFile)::iterator) {
+                String rel = root.relativize(p).toString().replace('\\', '/');
+                if (rel.equals(ExerciseManifest.FILE_NAME)) continue;
+                files.put(rel, Files.readString(p, StandardCharsets.UTF_8));
+            }
+        }
+        return files;
+    }
+}